@@ -0,0 +1,141 @@
+package uk.ac.ed.inf;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Benchmarks checking moves for collisions with the no-fly zones. The moves start at random positions in the
+ * confinement area (always the same positions, as the random numbers are seeded) and go in random directions. The
+ * score is the number of moves checked per second.
+ * The fan benchmarks check the fan of 7 moves that the A* searches make from each node (every 30 degrees from -90 to
+ * 90 degrees around a random direction), either one move at a time or all together with the batch check of
+ * `NoFlyZoneIndex`.
+ * @author Vivek Raja s1864074
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class CollisionBenchmark {
+
+    /**
+     * The number of moves checked in each benchmark invocation.
+     */
+    private static final int NUM_MOVES = 4096;
+
+    /**
+     * The length of the moves, as a number of drone moves. 100 is the look ahead used by the A* searches.
+     */
+    @Param({"1", "100"})
+    public int numMovesLength;
+
+    /**
+     * The number of moves in the fan of moves from a node of a search.
+     */
+    private static final int FAN_SIZE = 7;
+
+    private Move[] moves;
+
+    /**
+     * The origins of the fans, and the destinations of their moves, `FAN_SIZE` moves after another.
+     */
+    private double[] fanOrigLongitudes, fanOrigLatitudes;
+    private double[] fanDestLongitudes, fanDestLatitudes;
+
+    private final double[] destLongitudes = new double[FAN_SIZE];
+    private final double[] destLatitudes = new double[FAN_SIZE];
+    private final boolean[] intersects = new boolean[FAN_SIZE];
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        Fixtures.useLocalData();
+
+        Random random = new Random(42);
+        moves = new Move[NUM_MOVES];
+        for (int i = 0; i < NUM_MOVES; i++) {
+            double longitude = LongLat.CONFINEMENT_AREA_BOUND_WEST_LONGITUDE + random.nextDouble()
+                    * (LongLat.CONFINEMENT_AREA_BOUND_EAST_LONGITUDE - LongLat.CONFINEMENT_AREA_BOUND_WEST_LONGITUDE);
+            double latitude = LongLat.CONFINEMENT_AREA_BOUND_SOUTH_LATITUDE + random.nextDouble()
+                    * (LongLat.CONFINEMENT_AREA_BOUND_NORTH_LATITUDE - LongLat.CONFINEMENT_AREA_BOUND_SOUTH_LATITUDE);
+            int angle = random.nextInt(36) * 10;
+            moves[i] = new Move(new LongLat(longitude, latitude), angle, numMovesLength, null);
+        }
+
+        int numFans = NUM_MOVES / FAN_SIZE;
+        fanOrigLongitudes = new double[numFans];
+        fanOrigLatitudes = new double[numFans];
+        fanDestLongitudes = new double[numFans * FAN_SIZE];
+        fanDestLatitudes = new double[numFans * FAN_SIZE];
+        for (int fan = 0; fan < numFans; fan++) {
+            LongLat orig = moves[fan].getOrig();
+            fanOrigLongitudes[fan] = orig.longitude;
+            fanOrigLatitudes[fan] = orig.latitude;
+            for (int i = 0; i < FAN_SIZE; i++) {
+                LongLat dest = orig.nextPosition(moves[fan].getAngle() - 90 + 30 * i, numMovesLength);
+                fanDestLongitudes[fan * FAN_SIZE + i] = dest.longitude;
+                fanDestLatitudes[fan * FAN_SIZE + i] = dest.latitude;
+            }
+        }
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(NUM_MOVES)
+    public int intersectsWithNoFlyZone() {
+        int numIntersecting = 0;
+        for (Move move : moves) {
+            if (move.intersectsWithNoFlyZone()) {
+                numIntersecting++;
+            }
+        }
+        return numIntersecting;
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(NUM_MOVES / FAN_SIZE * FAN_SIZE)
+    public int fanOneByOne() {
+        int numIntersecting = 0;
+        for (int fan = 0; fan < fanOrigLongitudes.length; fan++) {
+            for (int i = fan * FAN_SIZE; i < (fan + 1) * FAN_SIZE; i++) {
+                if (NoFlyZones.INDEX.intersects(fanOrigLongitudes[fan], fanOrigLatitudes[fan], fanDestLongitudes[i],
+                        fanDestLatitudes[i])) {
+                    numIntersecting++;
+                }
+            }
+        }
+        return numIntersecting;
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(NUM_MOVES / FAN_SIZE * FAN_SIZE)
+    public int fanTogether() {
+        int numIntersecting = 0;
+        for (int fan = 0; fan < fanOrigLongitudes.length; fan++) {
+            System.arraycopy(fanDestLongitudes, fan * FAN_SIZE, destLongitudes, 0, FAN_SIZE);
+            System.arraycopy(fanDestLatitudes, fan * FAN_SIZE, destLatitudes, 0, FAN_SIZE);
+            NoFlyZones.INDEX.intersects(fanOrigLongitudes[fan], fanOrigLatitudes[fan], destLongitudes, destLatitudes,
+                    FAN_SIZE, intersects);
+            for (boolean intersect : intersects) {
+                if (intersect) {
+                    numIntersecting++;
+                }
+            }
+        }
+        return numIntersecting;
+    }
+}
@@ -0,0 +1,80 @@
+package uk.ac.ed.inf;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Benchmarks planning the deliveries of a full day with `Drone`, for each date in the database. Each benchmark
+ * invocation plans the next date, so the average time is the average time of planning a day.
+ * With a `cold` path cache the paths of every day are found from scratch, and with a `warm` path cache the paths
+ * found on earlier days are reused.
+ * @author Vivek Raja s1864074
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 5)
+@Measurement(iterations = 5, time = 5)
+@Fork(value = 1, jvmArgsAppend = "-Dorg.slf4j.simpleLogger.defaultLogLevel=warn")
+public class DayPlanningBenchmark {
+
+    @Param({"cold", "warm"})
+    public String pathCache;
+
+    /**
+     * Every date that has orders, in order of date.
+     */
+    private List<LocalDate> dates;
+
+    /**
+     * The index of the next date to plan.
+     */
+    private int nextDate;
+
+    /**
+     * The orders of the date planned in the current invocation.
+     */
+    private ArrayList<Order> orders;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        Fixtures.useLocalData();
+        dates = new ArrayList<>(DataSource.instance.getOrders(LocalDate.MIN, LocalDate.MAX).keySet());
+
+        // The drone reports every order it delivers, which would drown out the benchmark's output
+        System.setOut(new PrintStream(OutputStream.nullOutputStream()));
+    }
+
+    @Setup(Level.Invocation)
+    public void setUpDate() {
+        // New orders are needed for each invocation, as the drone marks the orders it delivers
+        orders = DataSource.instance.getOrders(dates.get(nextDate));
+        nextDate = (nextDate + 1) % dates.size();
+        if (pathCache.equals("cold")) {
+            PathCache.instance.clear();
+        }
+    }
+
+    @Benchmark
+    public List<Move> planDay() {
+        LongLat appletonTower = new LongLat(LongLat.APPLETON_TOWER_LONGITUDE, LongLat.APPLETON_TOWER_LATITUDE);
+        return new Drone(appletonTower, orders).getMoves();
+    }
+}
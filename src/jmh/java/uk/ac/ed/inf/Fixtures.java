@@ -0,0 +1,74 @@
+package uk.ac.ed.inf;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+/**
+ * The local fixtures the benchmarks run against, so that they run offline and always see the same data. The data is
+ * read by a `LocalDataSource` from the files the webserver serves (`website/`) and the dump of the orders in the
+ * database (`database/orders.tsv`).
+ * The benchmarks should be run from the project root, or with `-Dilp.root=<path to the project root>`.
+ * @author Vivek Raja s1864074
+ */
+class Fixtures {
+
+    /**
+     * The root of the project.
+     */
+    static final Path PROJECT_ROOT = Path.of(System.getProperty("ilp.root", ".")).toAbsolutePath().normalize();
+
+    /**
+     * The directory of the files the webserver serves.
+     */
+    static final Path WEBSITE_DIRECTORY = PROJECT_ROOT.resolve("website");
+
+    /**
+     * The dump of the orders in the database.
+     */
+    static final Path ORDERS_FILE = PROJECT_ROOT.resolve("database/orders.tsv");
+
+    /**
+     * Makes `DataSource.instance` read from the local fixtures.
+     */
+    static synchronized void useLocalData() {
+        if (DataSource.instance instanceof LocalDataSource) {
+            return;
+        }
+        if (!Files.isDirectory(WEBSITE_DIRECTORY) || !Files.isRegularFile(ORDERS_FILE)) {
+            System.err.println("Fatal error: " + WEBSITE_DIRECTORY + " or " + ORDERS_FILE + " does not exist. Please " +
+                    "run the benchmarks from the project root or set -Dilp.root.");
+            System.exit(1);
+        }
+        DataSource.instance = new LocalDataSource(WEBSITE_DIRECTORY, ORDERS_FILE);
+    }
+
+    /**
+     * Returns Appleton Tower and the location of every what three words phrase in `WEBSITE_DIRECTORY`, which are the
+     * locations of all the shops and delivery points.
+     */
+    static List<LongLat> getLocations() {
+        List<LongLat> locations = new ArrayList<>();
+        locations.add(new LongLat(LongLat.APPLETON_TOWER_LONGITUDE, LongLat.APPLETON_TOWER_LATITUDE));
+
+        Path wordsDirectory = WEBSITE_DIRECTORY.resolve("words");
+        try (Stream<Path> files = Files.walk(wordsDirectory)) {
+            List<String> allWords = files.filter(file -> file.endsWith("details.json"))
+                    .map(file -> wordsDirectory.relativize(file.getParent()).toString()
+                            .replace(wordsDirectory.getFileSystem().getSeparator(), "."))
+                    .sorted()
+                    .collect(Collectors.toList());
+            for (String words : allWords) {
+                locations.add(W3W.longLat(words));
+            }
+        } catch (IOException e) {
+            e.printStackTrace();
+            System.exit(1);
+        }
+        return locations;
+    }
+}
@@ -0,0 +1,106 @@
+package uk.ac.ed.inf;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import uk.ac.ed.inf.AStar.PrimitiveSearch;
+import uk.ac.ed.inf.AStar.Search;
+import uk.ac.ed.inf.AStar.VisibilityGraph;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Benchmarks single leg path queries between every pair of shops and delivery points (and Appleton Tower), with each
+ * of the path finders. `greedy` is the path finder the drone uses (`Drone.findPathTo`), which flies straight towards
+ * the destination and only uses the visibility graph to get around no-fly zones. Each benchmark invocation finds the path of the next leg, so the average time is the average
+ * time of a leg.
+ * The `largest-frontier` legs are the ten legs that make the A* search generate the most nodes, which are the long
+ * detours around buildings.
+ * @author Vivek Raja s1864074
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class PathfindingBenchmark {
+
+    /**
+     * The number of legs in the `largest-frontier` set.
+     */
+    private static final int NUM_LARGEST_FRONTIER_LEGS = 10;
+
+    @Param({"greedy", "visibility-graph", "primitive-search", "search"})
+    public String pathFinder;
+
+    @Param({"all", "largest-frontier"})
+    public String legs;
+
+    /**
+     * The start and destination of each leg.
+     */
+    private List<LongLat[]> legsToFind;
+
+    /**
+     * The index of the next leg to find.
+     */
+    private int nextLeg;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        Fixtures.useLocalData();
+        List<LongLat> locations = Fixtures.getLocations();
+
+        legsToFind = new ArrayList<>();
+        for (LongLat from : locations) {
+            for (LongLat dest : locations) {
+                if (from != dest) {
+                    legsToFind.add(new LongLat[]{from, dest});
+                }
+            }
+        }
+
+        if (legs.equals("largest-frontier")) {
+            Map<LongLat[], Integer> numNodesGenerated = new HashMap<>();
+            for (LongLat[] leg : legsToFind) {
+                PrimitiveSearch search = new PrimitiveSearch(leg[0], leg[1], null);
+                search.findPath(Drone.MAX_MOVES);
+                numNodesGenerated.put(leg, search.getNumNodesGenerated());
+            }
+            legsToFind.sort(Comparator.comparing(numNodesGenerated::get, Comparator.reverseOrder()));
+            legsToFind = new ArrayList<>(legsToFind.subList(0, NUM_LARGEST_FRONTIER_LEGS));
+        }
+    }
+
+    @Benchmark
+    public List<Move> findPath() {
+        LongLat[] leg = legsToFind.get(nextLeg);
+        nextLeg = (nextLeg + 1) % legsToFind.size();
+
+        switch (pathFinder) {
+            case "greedy":
+                return Drone.findPathTo(leg[1], leg[0], Drone.MAX_MOVES, null);
+            case "visibility-graph":
+                return VisibilityGraph.instance.findPath(leg[0], leg[1], Drone.MAX_MOVES, null);
+            case "primitive-search":
+                return new PrimitiveSearch(leg[0], leg[1], null).findPath(Drone.MAX_MOVES);
+            default:
+                return new Search(leg[0], leg[1], null).findPath(Drone.MAX_MOVES);
+        }
+    }
+}
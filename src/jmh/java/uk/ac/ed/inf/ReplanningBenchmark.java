@@ -0,0 +1,85 @@
+package uk.ac.ed.inf;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Benchmarks adding an order to the route of an `IncrementalPlanner` during the day. The orders of each date in the
+ * database are added one at a time to a planner for that date, so each benchmark invocation adds one order to a
+ * route that already has the orders of the date before it.
+ * @author Vivek Raja s1864074
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 5)
+@Measurement(iterations = 5, time = 5)
+@Fork(value = 1, jvmArgsAppend = "-Dorg.slf4j.simpleLogger.defaultLogLevel=warn")
+public class ReplanningBenchmark {
+
+    /**
+     * Every date that has orders, in order of date.
+     */
+    private List<LocalDate> dates;
+
+    /**
+     * The index of the date being planned.
+     */
+    private int nextDate;
+
+    /**
+     * The orders of the date being planned that haven't been added yet.
+     */
+    private ArrayList<Order> ordersToAdd = new ArrayList<>();
+
+    /**
+     * The planner of the date being planned.
+     */
+    private IncrementalPlanner planner;
+
+    /**
+     * The order added in the current invocation.
+     */
+    private Order order;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        Fixtures.useLocalData();
+        dates = new ArrayList<>(DataSource.instance.getOrders(LocalDate.MIN, LocalDate.MAX).keySet());
+
+        // The planner reports orders it can't fit in, which would drown out the benchmark's output
+        System.setOut(new PrintStream(OutputStream.nullOutputStream()));
+    }
+
+    @Setup(Level.Invocation)
+    public void setUpOrder() {
+        if (ordersToAdd.isEmpty()) {
+            ordersToAdd = DataSource.instance.getOrders(dates.get(nextDate));
+            nextDate = (nextDate + 1) % dates.size();
+            LongLat appletonTower = new LongLat(LongLat.APPLETON_TOWER_LONGITUDE, LongLat.APPLETON_TOWER_LATITUDE);
+            planner = new IncrementalPlanner(appletonTower, new ArrayList<>(), moves -> {});
+        }
+        order = ordersToAdd.remove(0);
+    }
+
+    @Benchmark
+    public boolean addOrder() {
+        return planner.addOrder(order);
+    }
+}
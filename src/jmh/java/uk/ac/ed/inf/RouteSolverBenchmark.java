@@ -0,0 +1,129 @@
+package uk.ac.ed.inf;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.time.Duration;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Benchmarks finding the order to deliver the orders of a day in, with jsprit (`TSPSolver`) for a fixed number of
+ * iterations, with jsprit in its anytime mode (a time budget and early stopping), with `HeuristicRouteSolver` and with
+ * `OrienteeringSolver`. Each benchmark invocation solves the next date in the database. The paths between all the
+ * stops are found before the benchmark starts, so only the solving is timed.
+ * At the end of the trial, the routes of `NUM_DAYS_FLOWN` dates spread evenly over the database are found again and
+ * flown by a drone, and the number of orders and pence delivered per day is printed, so the routes of the solvers can
+ * be compared too.
+ * @author Vivek Raja s1864074
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 5)
+@Measurement(iterations = 5, time = 5)
+@Fork(value = 1, jvmArgsAppend = "-Dorg.slf4j.simpleLogger.defaultLogLevel=warn")
+public class RouteSolverBenchmark {
+
+    /**
+     * The number of dates whose routes are flown to compare the orders delivered.
+     */
+    private static final int NUM_DAYS_FLOWN = 60;
+
+    /**
+     * The time budget and early stopping of the `jsprit-anytime` solver.
+     */
+    private static final Duration ANYTIME_TIME_BUDGET = Duration.ofSeconds(1);
+    private static final int ANYTIME_MAX_ITERATIONS_WITHOUT_IMPROVEMENT = 64;
+
+    @Param({"jsprit", "jsprit-anytime", "heuristic", "orienteering"})
+    public String solver;
+
+    private RouteSolver routeSolver;
+
+    /**
+     * Every date that has orders, in order of date.
+     */
+    private List<LocalDate> dates;
+
+    /**
+     * The index of the next date to solve.
+     */
+    private int nextDate;
+
+    /**
+     * The orders of the date solved in the current invocation.
+     */
+    private ArrayList<Order> orders;
+
+    private LongLat appletonTower;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        Fixtures.useLocalData();
+        switch (solver) {
+            case "jsprit":
+                routeSolver = new TSPSolver();
+                break;
+            case "jsprit-anytime":
+                routeSolver = new TSPSolver(ANYTIME_TIME_BUDGET, ANYTIME_MAX_ITERATIONS_WITHOUT_IMPROVEMENT);
+                break;
+            case "heuristic":
+                routeSolver = new HeuristicRouteSolver();
+                break;
+            default:
+                routeSolver = new OrienteeringSolver();
+        }
+        dates = new ArrayList<>(DataSource.instance.getOrders(LocalDate.MIN, LocalDate.MAX).keySet());
+        appletonTower = new LongLat(LongLat.APPLETON_TOWER_LONGITUDE, LongLat.APPLETON_TOWER_LATITUDE);
+
+        // Find the paths between all the stops, so that the solvers only look them up in the path cache
+        List<LongLat> locations = Fixtures.getLocations();
+        TSPSolver.getMoveCounts(locations);
+
+        // The drone reports every order it delivers, which would drown out the benchmark's output
+        System.setOut(new PrintStream(OutputStream.nullOutputStream()));
+    }
+
+    @Setup(Level.Invocation)
+    public void setUpDate() {
+        orders = DataSource.instance.getOrders(dates.get(nextDate));
+        nextDate = (nextDate + 1) % dates.size();
+    }
+
+    @Benchmark
+    public List<Order> solve() {
+        return routeSolver.solve(appletonTower, orders);
+    }
+
+    @TearDown(Level.Trial)
+    public void printDelivered() {
+        int numDays = Math.min(NUM_DAYS_FLOWN, dates.size());
+        long numOrdersDelivered = 0;
+        long penceDelivered = 0;
+        for (int day = 0; day < numDays; day++) {
+            LocalDate date = dates.get(day * dates.size() / numDays);
+            List<Order> route = routeSolver.solve(appletonTower, DataSource.instance.getOrders(date));
+            Drone drone = Drone.flyRoute(appletonTower, route, moves -> {});
+            numOrdersDelivered += drone.getOrdersDelivered().size();
+            penceDelivered += drone.getOrdersDelivered().stream().mapToInt(Order::getDeliveryCost).sum();
+        }
+        System.err.printf("%s: %.2f orders and %.0f pence delivered per day over %d days%n", solver,
+                (double) numOrdersDelivered / numDays, (double) penceDelivered / numDays, numDays);
+    }
+}
@@ -0,0 +1,39 @@
+package uk.ac.ed.inf.AStar;
+
+import uk.ac.ed.inf.LongLat;
+
+/**
+ * A strategy for estimating the cost (in degrees, i.e. the number of moves times `Drone.MOVE_LENGTH_IN_DEGREES`) of
+ * the path from a node of the A* search to the destination. The estimate should never be more than the real cost, so
+ * that the search finds the shortest path. The positions are given as coordinates, so that `PrimitiveSearch` doesn't
+ * have to create `LongLat` objects for its nodes.
+ */
+public interface Heuristic {
+
+    /**
+     * The straight line distance to the destination, which ignores the no-fly zones.
+     */
+    Heuristic EUCLIDEAN = (longitude, latitude, destLongitude, destLatitude) -> {
+        double lngDiff = destLongitude - longitude;
+        double latDiff = destLatitude - latitude;
+        return Math.sqrt(lngDiff * lngDiff + latDiff * latDiff);
+    };
+
+    /**
+     * Estimates the cost of the path from (`longitude`, `latitude`) to (`destLongitude`, `destLatitude`).
+     *
+     * @return The estimated cost, in degrees.
+     */
+    double estimate(double longitude, double latitude, double destLongitude, double destLatitude);
+
+    /**
+     * Estimates the cost of the path from `from` to `dest`.
+     *
+     * @param from the position of the node.
+     * @param dest the destination of the search.
+     * @return The estimated cost, in degrees.
+     */
+    default double estimate(LongLat from, LongLat dest) {
+        return estimate(from.longitude, from.latitude, dest.longitude, dest.latitude);
+    }
+}
@@ -0,0 +1,175 @@
+package uk.ac.ed.inf.AStar;
+
+import java.util.Arrays;
+
+/**
+ * A binary min-heap of `int` ids ordered by a `double` priority. The heap keeps the position of every id in it, so
+ * checking whether an id is in the heap takes O(1) time, and lowering the priority of an id (decrease-key) takes
+ * O(log n) time instead of a linear scan and removal.
+ * Ids should be small non-negative numbers (e.g. indices into arrays), as the positions are stored in an array
+ * indexed by id.
+ */
+public class IndexedMinHeap {
+
+    /**
+     * The ids in the heap, in heap order.
+     */
+    private int[] heap;
+
+    /**
+     * The priority of each id, indexed by id.
+     */
+    private double[] priorities;
+
+    /**
+     * The position of each id in `heap`, indexed by id, or -1 if the id isn't in the heap.
+     */
+    private int[] positions;
+
+    /**
+     * The number of ids in the heap.
+     */
+    private int size;
+
+    /**
+     * Instantiates an empty heap.
+     * @param expectedMaxId the largest id the heap should be able to hold without growing.
+     */
+    public IndexedMinHeap(int expectedMaxId) {
+        int capacity = Math.max(16, expectedMaxId + 1);
+        this.heap = new int[capacity];
+        this.priorities = new double[capacity];
+        this.positions = new int[capacity];
+        Arrays.fill(positions, -1);
+    }
+
+    /**
+     * @return true if there are no ids in the heap.
+     */
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    /**
+     * @return The number of ids in the heap.
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * @return true if `id` is in the heap.
+     */
+    public boolean contains(int id) {
+        return id < positions.length && positions[id] >= 0;
+    }
+
+    /**
+     * Returns the priority `id` has in the heap.
+     */
+    public double getPriority(int id) {
+        return priorities[id];
+    }
+
+    /**
+     * Adds `id` to the heap, or changes its priority if it is already in the heap.
+     * @param id the id to add.
+     * @param priority the priority of the id. Lower priorities are polled first.
+     */
+    public void addOrUpdate(int id, double priority) {
+        if (id >= positions.length) {
+            growTo(id);
+        }
+        if (contains(id)) {
+            double oldPriority = priorities[id];
+            priorities[id] = priority;
+            if (priority < oldPriority) {
+                siftUp(positions[id]);
+            } else {
+                siftDown(positions[id]);
+            }
+            return;
+        }
+        priorities[id] = priority;
+        heap[size] = id;
+        positions[id] = size;
+        siftUp(size++);
+    }
+
+    /**
+     * Removes and returns the id with the lowest priority.
+     * @return The id with the lowest priority, or -1 if the heap is empty.
+     */
+    public int poll() {
+        if (size == 0) {
+            return -1;
+        }
+        int top = heap[0];
+        positions[top] = -1;
+        size--;
+        if (size > 0) {
+            heap[0] = heap[size];
+            positions[heap[0]] = 0;
+            siftDown(0);
+        }
+        return top;
+    }
+
+    /**
+     * Removes all the ids from the heap.
+     */
+    public void clear() {
+        for (int i = 0; i < size; i++) {
+            positions[heap[i]] = -1;
+        }
+        size = 0;
+    }
+
+    private void siftUp(int position) {
+        int id = heap[position];
+        double priority = priorities[id];
+        while (position > 0) {
+            int parentPosition = (position - 1) >>> 1;
+            int parent = heap[parentPosition];
+            if (priorities[parent] <= priority) {
+                break;
+            }
+            heap[position] = parent;
+            positions[parent] = position;
+            position = parentPosition;
+        }
+        heap[position] = id;
+        positions[id] = position;
+    }
+
+    private void siftDown(int position) {
+        int id = heap[position];
+        double priority = priorities[id];
+        while (true) {
+            int child = 2 * position + 1;
+            if (child >= size) {
+                break;
+            }
+            if (child + 1 < size && priorities[heap[child + 1]] < priorities[heap[child]]) {
+                child++;
+            }
+            if (priority <= priorities[heap[child]]) {
+                break;
+            }
+            heap[position] = heap[child];
+            positions[heap[position]] = position;
+            position = child;
+        }
+        heap[position] = id;
+        positions[id] = position;
+    }
+
+    private void growTo(int id) {
+        int capacity = Math.max(positions.length * 2, id + 1);
+        heap = Arrays.copyOf(heap, capacity);
+        priorities = Arrays.copyOf(priorities, capacity);
+        int oldLength = positions.length;
+        positions = Arrays.copyOf(positions, capacity);
+        Arrays.fill(positions, oldLength, capacity, -1);
+    }
+}
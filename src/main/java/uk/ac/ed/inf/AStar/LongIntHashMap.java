@@ -0,0 +1,107 @@
+package uk.ac.ed.inf.AStar;
+
+import java.util.Arrays;
+
+/**
+ * A hash map from `long` keys to `int` values that stores its entries in flat arrays (open addressing with linear
+ * probing), so that looking up and adding entries doesn't create any objects.
+ * `Long.MIN_VALUE` is used to mark empty slots, so it can't be used as a key.
+ */
+class LongIntHashMap {
+
+    /**
+     * The key that marks an empty slot.
+     */
+    private static final long EMPTY_KEY = Long.MIN_VALUE;
+
+    /**
+     * The keys of the map. The length is always a power of two.
+     */
+    private long[] keys;
+
+    /**
+     * The values of the map, in the same slots as their keys.
+     */
+    private int[] values;
+
+    /**
+     * The number of entries in the map.
+     */
+    private int size;
+
+    /**
+     * Instantiates an empty map.
+     * @param expectedSize the number of entries the map should be able to hold without growing.
+     */
+    LongIntHashMap(int expectedSize) {
+        int capacity = Integer.highestOneBit(Math.max(4, expectedSize * 2) - 1) << 1;
+        this.keys = new long[capacity];
+        this.values = new int[capacity];
+        Arrays.fill(keys, EMPTY_KEY);
+    }
+
+    /**
+     * Returns the value of `key`, or -1 if the key isn't in the map.
+     */
+    int get(long key) {
+        int mask = keys.length - 1;
+        for (int slot = hash(key) & mask; ; slot = (slot + 1) & mask) {
+            if (keys[slot] == key) {
+                return values[slot];
+            }
+            if (keys[slot] == EMPTY_KEY) {
+                return -1;
+            }
+        }
+    }
+
+    /**
+     * Sets the value of `key` to `value`.
+     */
+    void put(long key, int value) {
+        int mask = keys.length - 1;
+        int slot = hash(key) & mask;
+        while (keys[slot] != EMPTY_KEY && keys[slot] != key) {
+            slot = (slot + 1) & mask;
+        }
+        if (keys[slot] == EMPTY_KEY) {
+            keys[slot] = key;
+            size++;
+        }
+        values[slot] = value;
+
+        // Keep the map at most half full so that probe sequences stay short
+        if (size * 2 > keys.length) {
+            grow();
+        }
+    }
+
+    /**
+     * @return The number of entries in the map.
+     */
+    int size() {
+        return size;
+    }
+
+    private void grow() {
+        long[] oldKeys = keys;
+        int[] oldValues = values;
+        keys = new long[oldKeys.length * 2];
+        values = new int[oldValues.length * 2];
+        Arrays.fill(keys, EMPTY_KEY);
+        size = 0;
+        for (int i = 0; i < oldKeys.length; i++) {
+            if (oldKeys[i] != EMPTY_KEY) {
+                put(oldKeys[i], oldValues[i]);
+            }
+        }
+    }
+
+    /**
+     * Mixes the bits of the key, so that keys that only differ in their high or low bits go to different slots.
+     */
+    private static int hash(long key) {
+        long h = key * 0x9E3779B97F4A7C15L;
+        return (int) (h ^ (h >>> 32));
+    }
+}
@@ -9,10 +9,10 @@ import uk.ac.ed.inf.LongLat;
 public class Node extends LongLat {
 
     /**
-     * Heurisitc cost - the estimate of how much it'll cost to reach the goal node.
-     * In this case, we use Eucledian distance.
+     * Heurisitc cost - the estimate of how much it'll cost to reach the goal node, given by the `Heuristic` of the
+     * search.
      */
-    private final double hCost;
+    private double hCost;
 
     /**
      * Cost to get to this node from the initial node.
@@ -45,9 +45,21 @@ public class Node extends LongLat {
      * @param parent The parent node of this node. Should be null if this is a root node.
      */
     public Node(LongLat curr, LongLat dest, Node parent) {
+        this(curr, dest, parent, Heuristic.EUCLIDEAN);
+    }
+
+    /**
+     * Instantiates a Node object for use in A* search, with the heuristic cost given by `heuristic`.
+     *
+     * @param curr Position (in LongLat) of the node
+     * @param dest Position (in LongLat) of the dest
+     * @param parent The parent node of this node. Should be null if this is a root node.
+     * @param heuristic The heuristic of the search
+     */
+    public Node(LongLat curr, LongLat dest, Node parent, Heuristic heuristic) {
         // Call super since this extends the LongLat object.
         super(curr.longitude, curr.latitude);
-        this.hCost = this.distanceTo(dest);
+        this.hCost = heuristic.estimate(this, dest);
 
         // if this is a root node
         if (parent == null) {
@@ -85,6 +97,19 @@ public class Node extends LongLat {
         this.nodeDistance = parent.getNodeDistance() + 1;
     }
 
+    /**
+     * Moves this node to the position of `node`, which is in the same lattice square but is reached by a shorter
+     * path, and takes the parent and costs of `node`. This node must not have been explored yet, so that it has no
+     * children that were generated from its old position.
+     * @param node the node to take the position and parent of.
+     */
+    public void replaceWith(Node node) {
+        this.longitude = node.longitude;
+        this.latitude = node.latitude;
+        this.hCost = node.hCost;
+        changeParent(node.getParent());
+    }
+
     /**
      * Returns the actual cost to get to this node
      *
@@ -0,0 +1,244 @@
+package uk.ac.ed.inf.AStar;
+
+import uk.ac.ed.inf.Drone;
+import uk.ac.ed.inf.LongLat;
+import uk.ac.ed.inf.Move;
+import uk.ac.ed.inf.NoFlyZones;
+import uk.ac.ed.inf.Order;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+
+/**
+ * Performs the same A* search as `Search`, but keeps the nodes in parallel primitive arrays instead of `Node`
+ * objects. Positions are identified by their packed `long` lattice key (see `LongLat.latticeKey`), the explored and
+ * generated nodes are looked up in an open addressing `long` to `int` map, and the nodes to explore are kept in an
+ * indexed binary heap. Collisions are checked directly against `NoFlyZones.INDEX`. `Move` and `LongLat`
+ * objects are only created for the path that is returned, so the search itself allocates almost nothing apart from
+ * growing its arrays.
+ */
+public class PrimitiveSearch {
+
+    /**
+     * The number of moves ahead that are checked for no-fly zones in the direction of each new node.
+     */
+    private static final int LOOKAHEAD_MOVES = 100;
+
+    /**
+     * The number of directions new nodes are generated in from each node.
+     */
+    private static final int FAN_SIZE = 7;
+
+    /**
+     * The initial capacity of the node arrays.
+     */
+    private static final int INITIAL_CAPACITY = 1024;
+
+    private final double destLongitude;
+    private final double destLatitude;
+    private final double startLongitude;
+    private final double startLatitude;
+    private final Order order;
+
+    /**
+     * The strategy that estimates the cost from each node to the destination.
+     */
+    private final Heuristic heuristic;
+
+    // The nodes of the search, indexed by the order they were generated in.
+    private double[] longitudes = new double[INITIAL_CAPACITY];
+    private double[] latitudes = new double[INITIAL_CAPACITY];
+    private int[] numMoves = new int[INITIAL_CAPACITY];
+    private int[] parents = new int[INITIAL_CAPACITY];
+    private int[] angles = new int[INITIAL_CAPACITY];
+    private boolean[] explored = new boolean[INITIAL_CAPACITY];
+    private int numNodes = 0;
+
+    // The fan of moves from the node being expanded, which are checked for no-fly zones together.
+    private final int[] fanAngles = new int[FAN_SIZE];
+    private final double[] fanCosines = new double[FAN_SIZE];
+    private final double[] fanSines = new double[FAN_SIZE];
+    private final double[] fanLongitudes = new double[FAN_SIZE];
+    private final double[] fanLatitudes = new double[FAN_SIZE];
+    private final boolean[] fanIntersects = new boolean[FAN_SIZE];
+
+    /**
+     * The node with each position key.
+     */
+    private final LongIntHashMap nodesByKey = new LongIntHashMap(INITIAL_CAPACITY);
+
+    /**
+     * The nodes to explore, ordered by total cost.
+     */
+    private final IndexedMinHeap nodesToExplore = new IndexedMinHeap(INITIAL_CAPACITY);
+
+    /**
+     * Construct an A* search instance for the given initial and destination position.
+     *
+     * @param initialPos     Starting position of the search
+     * @param destinationPos Target destination of the A* search
+     * @param order          The order to associate the moves of the path with
+     */
+    public PrimitiveSearch(LongLat initialPos, LongLat destinationPos, Order order) {
+        this(initialPos, destinationPos, order, Heuristic.EUCLIDEAN);
+    }
+
+    /**
+     * Construct an A* search instance for the given initial and destination position, which estimates the cost from
+     * each node to the destination with the given heuristic.
+     *
+     * @param initialPos     Starting position of the search
+     * @param destinationPos Target destination of the A* search
+     * @param order          The order to associate the moves of the path with
+     * @param heuristic      The heuristic of the search
+     */
+    public PrimitiveSearch(LongLat initialPos, LongLat destinationPos, Order order, Heuristic heuristic) {
+        this.heuristic = heuristic;
+        this.startLongitude = initialPos.longitude;
+        this.startLatitude = initialPos.latitude;
+        this.destLongitude = destinationPos.longitude;
+        this.destLatitude = destinationPos.latitude;
+        this.order = order;
+    }
+
+    /**
+     * Find a path from the initial to destination position using A* search
+     *
+     * @param maxMoves the maximum number of moves the path can be made of.
+     * @return Path as list of moves from initial to final position. Null if no path exists.
+     */
+    public ArrayList<Move> findPath(int maxMoves) {
+        int initialNode = addNode(startLongitude, startLatitude, -1, 0, 0);
+        nodesByKey.put(LongLat.latticeKey(startLongitude, startLatitude), initialNode);
+        nodesToExplore.addOrUpdate(initialNode, heuristic(initialNode));
+
+        while (!nodesToExplore.isEmpty()) {
+            int currentNode = nodesToExplore.poll();
+            explored[currentNode] = true;
+
+            // If near to destination pos, then stop and return path from current node
+            if (LongLat.closeTo(longitudes[currentNode], latitudes[currentNode], destLongitude, destLatitude)) {
+                return getPath(currentNode);
+            }
+            generateNewNodes(currentNode, maxMoves);
+        }
+        return null;
+    }
+
+    /**
+     * @return The number of nodes generated by the search so far.
+     */
+    public int getNumNodesGenerated() {
+        return numNodes;
+    }
+
+    /**
+     * Generates new nodes to explore in a fan of directions around the direction of the destination.
+     *
+     * @param currentNode The node to generate new nodes and expand the frontier from
+     * @param maxMoves the maximum number of moves the path can be made of.
+     */
+    private void generateNewNodes(int currentNode, int maxMoves) {
+        double x = longitudes[currentNode];
+        double y = latitudes[currentNode];
+        int angleToDest = LongLat.angleBetween(x, y, destLongitude, destLatitude);
+        int newNumMoves = numMoves[currentNode] + 1;
+
+        for (int i = 0; i < FAN_SIZE; i++) {
+            fanAngles[i] = (angleToDest - 90 + 30 * i + 360) % 360;
+            double angleInRadians = Math.toRadians(fanAngles[i]);
+            fanCosines[i] = Math.cos(angleInRadians);
+            fanSines[i] = Math.sin(angleInRadians);
+            fanLongitudes[i] = x + Drone.MOVE_LENGTH_IN_DEGREES * fanCosines[i];
+            fanLatitudes[i] = y + Drone.MOVE_LENGTH_IN_DEGREES * fanSines[i];
+        }
+        NoFlyZones.INDEX.intersects(x, y, fanLongitudes, fanLatitudes, FAN_SIZE, fanIntersects);
+
+        for (int i = 0; i < FAN_SIZE; i++) {
+            int angle = fanAngles[i];
+            double cos = fanCosines[i];
+            double sin = fanSines[i];
+            double nextX = fanLongitudes[i];
+            double nextY = fanLatitudes[i];
+
+            long key = LongLat.latticeKey(nextX, nextY);
+            int existingNode = nodesByKey.get(key);
+            if (existingNode >= 0 && explored[existingNode]) {
+                continue;
+            }
+
+            // Skip moves that leave the confinement area or cross a no-fly zone, or that head towards one
+            double lookaheadLength = LOOKAHEAD_MOVES * Drone.MOVE_LENGTH_IN_DEGREES;
+            if (!LongLat.isConfined(nextX, nextY)
+                    || fanIntersects[i]
+                    || NoFlyZones.INDEX.intersects(x, y, x + lookaheadLength * cos, y + lookaheadLength * sin)) {
+                continue;
+            }
+
+            if (existingNode < 0) {
+                // only include node if it doesn't exceed maximum moves remaining (the initial node is the first node)
+                if (newNumMoves + 1 <= maxMoves) {
+                    int newNode = addNode(nextX, nextY, currentNode, angle, newNumMoves);
+                    nodesByKey.put(key, newNode);
+                    nodesToExplore.addOrUpdate(newNode, newNumMoves * Drone.MOVE_LENGTH_IN_DEGREES + heuristic(newNode));
+                }
+            } else if (newNumMoves < numMoves[existingNode]) {
+                // The node has already been generated, but the current node gives a shorter path to it. The node
+                // hasn't been explored, so it has no children yet and can be moved to where the current node leads.
+                longitudes[existingNode] = nextX;
+                latitudes[existingNode] = nextY;
+                parents[existingNode] = currentNode;
+                angles[existingNode] = angle;
+                numMoves[existingNode] = newNumMoves;
+                nodesToExplore.addOrUpdate(existingNode,
+                        newNumMoves * Drone.MOVE_LENGTH_IN_DEGREES + heuristic(existingNode));
+            }
+        }
+    }
+
+    /**
+     * Returns the moves from the initial node to `node`. The moves are made from the initial position with the
+     * angles of the nodes on the path.
+     */
+    private ArrayList<Move> getPath(int node) {
+        int[] pathAngles = new int[numMoves[node]];
+        for (int i = pathAngles.length - 1; i >= 0; i--) {
+            pathAngles[i] = angles[node];
+            node = parents[node];
+        }
+
+        ArrayList<Move> output = new ArrayList<>(pathAngles.length);
+        LongLat pos = new LongLat(startLongitude, startLatitude);
+        for (int angle : pathAngles) {
+            Move move = new Move(pos, angle, this.order);
+            output.add(move);
+            pos = move.getDest();
+        }
+        return output;
+    }
+
+    /**
+     * The estimated cost from a node to the destination.
+     */
+    private double heuristic(int node) {
+        return heuristic.estimate(longitudes[node], latitudes[node], destLongitude, destLatitude);
+    }
+
+    private int addNode(double longitude, double latitude, int parent, int angle, int nodeNumMoves) {
+        if (numNodes == longitudes.length) {
+            int capacity = numNodes * 2;
+            longitudes = Arrays.copyOf(longitudes, capacity);
+            latitudes = Arrays.copyOf(latitudes, capacity);
+            numMoves = Arrays.copyOf(numMoves, capacity);
+            parents = Arrays.copyOf(parents, capacity);
+            angles = Arrays.copyOf(angles, capacity);
+            explored = Arrays.copyOf(explored, capacity);
+        }
+        longitudes[numNodes] = longitude;
+        latitudes[numNodes] = latitude;
+        parents[numNodes] = parent;
+        angles[numNodes] = angle;
+        numMoves[numNodes] = nodeNumMoves;
+        return numNodes++;
+    }
+}
@@ -14,9 +14,20 @@ import java.util.*;
  */
 public class Search {
     /**
-     * list of nodes to explore
+     * ids of the nodes to explore, ordered by total cost. An id is the index of the node in `nodes`.
      */
-    private final PriorityQueue<Node> nodesToExplore;
+    private final IndexedMinHeap nodesToExplore;
+
+    /**
+     * every node generated so far, indexed by id
+     */
+    private final ArrayList<Node> nodes;
+
+    /**
+     * the id of every node generated so far. Nodes are equal if they are at the same lattice position
+     * (see `LongLat.equals`), so a new node finds the id of a node previously generated at its position.
+     */
+    private final Map<Node, Integer> nodeIds;
 
     /**
      * list of nodes already explored
@@ -35,6 +46,11 @@ public class Search {
 
     private Order order;
 
+    /**
+     * the strategy that estimates the cost from each node to the destination
+     */
+    private final Heuristic heuristic;
+
     /**
      * Construct an AStar search instance for the given initial and destination position.
      * SensorMap is also given to check for any collision
@@ -44,9 +60,25 @@ public class Search {
      * @param order      SensorMap to search over
      */
     public Search(LongLat initialPos, LongLat destinationPos, Order order) {
-        this.initialNode = new Node(initialPos, destinationPos, null);
+        this(initialPos, destinationPos, order, Heuristic.EUCLIDEAN);
+    }
+
+    /**
+     * Construct an AStar search instance for the given initial and destination position, which estimates the cost
+     * from each node to the destination with the given heuristic.
+     *
+     * @param initialPos     Starting position of the search
+     * @param destinationPos Target destination of the AStar search
+     * @param order          The order to associate the moves of the path with
+     * @param heuristic      The heuristic of the search
+     */
+    public Search(LongLat initialPos, LongLat destinationPos, Order order, Heuristic heuristic) {
+        this.heuristic = heuristic;
+        this.initialNode = new Node(initialPos, destinationPos, null, heuristic);
         this.destinationPos = destinationPos;
-        this.nodesToExplore = new PriorityQueue<>(Comparator.comparingDouble(Node::getTotalCost));
+        this.nodesToExplore = new IndexedMinHeap(1024);
+        this.nodes = new ArrayList<>();
+        this.nodeIds = new HashMap<>();
         this.exploredNodes = new HashSet<>();
         this.order = order;
     }
@@ -58,18 +90,23 @@ public class Search {
      * @return Path as list of positions from initial to final position. Empty list if no path exists.
      */
     public ArrayList<Move> findPath(int maxMoves) {
-        nodesToExplore.add(initialNode);
+        addNode(initialNode);
         while (!nodesToExplore.isEmpty()) {
-            Node currentNode = nodesToExplore.poll();
+            Node currentNode = nodes.get(nodesToExplore.poll());
             exploredNodes.add(currentNode);
 
             // If near to destination pos, then stop and return path from current node
             if (currentNode.closeTo(destinationPos)) {
                 var path = getPath(currentNode);
 
+                // Replay the moves from the initial position, so that each move starts exactly where the last one
+                // ended
                 ArrayList<Move> output = new ArrayList<>();
+                LongLat pos = initialNode;
                 for (int i = 0; i < path.size() - 1; i++) {
-                    output.add(new Move(path.get(i), path.get(i + 1), this.order));
+                    Move move = new Move(pos, path.get(i).angleTo(path.get(i + 1)), this.order);
+                    output.add(move);
+                    pos = move.getDest();
                 }
                 return output;
             } else {
@@ -105,36 +142,58 @@ public class Search {
      */
     private void generateNewNodes(Node currentFrontierNode, int maxMoves) {
         var angleToDest = currentFrontierNode.angleTo(destinationPos);
-        for (int angle = -90; angle <= 90; angle += 30) {
-            var angleToTry = (angleToDest + angle) % 360;
-            LongLat nextPos = currentFrontierNode.nextPosition(angleToTry);
-            Node newNode = new Node(nextPos, destinationPos, currentFrontierNode);
+        var nextPositions = new LongLat[7];
+        var steps = new Move[nextPositions.length];
+        for (int i = 0; i < steps.length; i++) {
+            var angleToTry = (angleToDest - 90 + 30 * i) % 360;
+            nextPositions[i] = currentFrontierNode.nextPosition(angleToTry);
+            steps[i] = new Move(currentFrontierNode, nextPositions[i], order);
+        }
+        // The steps all start at the current node, so they are checked for no-fly zones together
+        var stepsIntersect = Move.intersectWithNoFlyZone(steps);
+
+        for (int i = 0; i < steps.length; i++) {
+            var step = steps[i];
+            LongLat nextPos = nextPositions[i];
+            Node newNode = new Node(nextPos, destinationPos, currentFrontierNode, heuristic);
 
-            var step = new Move(currentFrontierNode, nextPos, order);
             var five_steps_in_dir = new Move(currentFrontierNode, step.getAngle(), 100, order);
             // If node not previously explored, and isn't in no fly zone, then explore it, else skip it
-            if (!exploredNodes.contains(newNode) && step.isValid() && !five_steps_in_dir.intersectsWithNoFlyZone()) {
+            if (!exploredNodes.contains(newNode) && step.getDest().isConfined() && !stepsIntersect[i]
+                    && !five_steps_in_dir.intersectsWithNoFlyZone()) {
+                Integer generatedNodeId = nodeIds.get(newNode);
                 // If newNode not already generated previously, then add to list of nodes to explore
-                if (!nodesToExplore.contains(newNode)) {
+                if (generatedNodeId == null) {
                     if (newNode.getNodeDistance() <= maxMoves) {
                         // only include node if it doesn't exceed maximum moves remaining
-                        nodesToExplore.add(newNode);
+                        addNode(newNode);
                     }
                 } else {
-                    // newNode has already been generated, but not yet explored
-                    boolean newNodeNeedsUpdate = newNode.compareParent(currentFrontierNode);
+                    // a node at newNode's position has already been generated, but not yet explored
+                    Node generatedNode = nodes.get(generatedNodeId);
 
-                    // if better path is available for newNode from currentFrontierNode
-                    if (newNodeNeedsUpdate) {
-                        newNode.changeParent(currentFrontierNode);
+                    // if better path is available for the generated node from currentFrontierNode, move the node
+                    // to where that path leads, which is in the same lattice square but not at the same position
+                    if (generatedNode.compareParent(currentFrontierNode)) {
+                        generatedNode.replaceWith(newNode);
 
-                        // Remove and add the changed node, so that the PriorityQueue can sort again its
-                        // contents with the modified "totalCost" value of the modified node
-                        nodesToExplore.remove(newNode);
-                        nodesToExplore.add(newNode);
+                        // Lower the node's priority to its new "totalCost" value (decrease-key)
+                        nodesToExplore.addOrUpdate(generatedNodeId, generatedNode.getTotalCost());
                     }
                 }
             }
         }
     }
+
+    /**
+     * Gives a node an id and adds it to the nodes to explore.
+     *
+     * @param node The newly generated node
+     */
+    private void addNode(Node node) {
+        int id = nodes.size();
+        nodes.add(node);
+        nodeIds.put(node, id);
+        nodesToExplore.addOrUpdate(id, node.getTotalCost());
+    }
 }
@@ -0,0 +1,375 @@
+package uk.ac.ed.inf.AStar;
+
+import uk.ac.ed.inf.Drone;
+import uk.ac.ed.inf.LongLat;
+import uk.ac.ed.inf.Move;
+import uk.ac.ed.inf.NoFlyZones;
+import uk.ac.ed.inf.Order;
+
+import java.awt.geom.Line2D;
+import java.awt.geom.Path2D;
+import java.awt.geom.Point2D;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * A visibility graph of the no-fly zones. The nodes of the graph are the convex corners of the no-fly zone polygons,
+ * pushed slightly outwards so that the drone can fly around them, and two nodes are connected if the drone can fly
+ * between them in a straight line without coming too close to a no-fly zone.
+ * The graph is built once when the no-fly zones are loaded. A query connects the start and destination to the
+ * graph, finds the shortest chain of corners with A* over the (small) graph, and then turns that chain into legal
+ * 10 degree moves. If the moves can't follow the chain (e.g. because of the angle quantisation), the query falls
+ * back to a full A* search over the moves (`PrimitiveSearch`) from the position it got stuck at.
+ * @author Vivek Raja s1864074
+ */
+public class VisibilityGraph {
+
+    /**
+     * The visibility graph of the no-fly zones loaded from the webserver.
+     */
+    public static final VisibilityGraph instance = new VisibilityGraph(NoFlyZones.POLYGONS);
+
+    /**
+     * The distance (in degrees) a corner of a no-fly zone is pushed outwards to become a node of the graph.
+     */
+    private static final double CORNER_CLEARANCE_IN_DEGREES = 2 * Drone.MOVE_LENGTH_IN_DEGREES;
+
+    /**
+     * The minimum distance (in degrees) an edge between two corner nodes has to keep from the no-fly zones.
+     */
+    private static final double EDGE_CLEARANCE_IN_DEGREES = Drone.MOVE_LENGTH_IN_DEGREES;
+
+    /**
+     * The sides of the no-fly zones.
+     */
+    private final List<Line2D> sides;
+
+    /**
+     * The no-fly zones as shapes, used to discard corner nodes that lie inside another no-fly zone.
+     */
+    private final List<Path2D> zones;
+
+    /**
+     * The longitudes of the corner nodes.
+     */
+    private final double[] nodeLongitudes;
+
+    /**
+     * The latitudes of the corner nodes.
+     */
+    private final double[] nodeLatitudes;
+
+    /**
+     * The length (in degrees) of the edge between two corner nodes, or infinity if they can't see each other.
+     */
+    private final double[][] edgeLengths;
+
+    /**
+     * Builds the visibility graph of the given no-fly zones.
+     * @param noFlyZones the polygons of the no-fly zones, each given as a closed ring of vertices.
+     */
+    public VisibilityGraph(List<List<Point2D>> noFlyZones) {
+        this.sides = new ArrayList<>();
+        this.zones = new ArrayList<>();
+        for (List<Point2D> polygon : noFlyZones) {
+            Path2D zone = new Path2D.Double();
+            zone.moveTo(polygon.get(0).getX(), polygon.get(0).getY());
+            for (int i = 1; i < polygon.size(); i++) {
+                sides.add(new Line2D.Double(polygon.get(i - 1), polygon.get(i)));
+                zone.lineTo(polygon.get(i).getX(), polygon.get(i).getY());
+            }
+            zone.closePath();
+            zones.add(zone);
+        }
+
+        List<Point2D> corners = new ArrayList<>();
+        for (List<Point2D> polygon : noFlyZones) {
+            corners.addAll(getOuterCorners(polygon));
+        }
+        int numNodes = corners.size();
+        this.nodeLongitudes = new double[numNodes];
+        this.nodeLatitudes = new double[numNodes];
+        for (int i = 0; i < numNodes; i++) {
+            nodeLongitudes[i] = corners.get(i).getX();
+            nodeLatitudes[i] = corners.get(i).getY();
+        }
+
+        this.edgeLengths = new double[numNodes][numNodes];
+        for (int i = 0; i < numNodes; i++) {
+            edgeLengths[i][i] = 0;
+            for (int j = i + 1; j < numNodes; j++) {
+                double length = Double.POSITIVE_INFINITY;
+                if (isClear(nodeLongitudes[i], nodeLatitudes[i], nodeLongitudes[j], nodeLatitudes[j],
+                        EDGE_CLEARANCE_IN_DEGREES)) {
+                    length = Math.hypot(nodeLongitudes[j] - nodeLongitudes[i], nodeLatitudes[j] - nodeLatitudes[i]);
+                }
+                edgeLengths[i][j] = length;
+                edgeLengths[j][i] = length;
+            }
+        }
+    }
+
+    /**
+     * Finds a path of moves from `from` to close to `dest`. The path is found on the visibility graph first and
+     * then converted to moves; if the conversion gets stuck, the rest of the path is found with `PrimitiveSearch`.
+     * @param from the position to start the path from.
+     * @param dest the position to go to.
+     * @param maxMoves the maximum number of moves the path can be made of.
+     * @param order the order to associate the moves with.
+     * @return A list of moves if a path is found, else null.
+     */
+    public ArrayList<Move> findPath(LongLat from, LongLat dest, int maxMoves, Order order) {
+        ArrayList<Move> pathMoves = new ArrayList<>();
+        List<LongLat> waypoints = findWaypoints(from, dest);
+        if (waypoints != null) {
+            for (LongLat waypoint : waypoints) {
+                boolean reachedWaypoint = followStraightLine(pathMoves, from, waypoint, maxMoves, order);
+                if (!pathMoves.isEmpty()) {
+                    from = pathMoves.get(pathMoves.size() - 1).getDest();
+                }
+                if (!reachedWaypoint) {
+                    break;
+                }
+            }
+        }
+
+        if (from.closeTo(dest)) {
+            return pathMoves;
+        }
+
+        // The waypoints couldn't be followed all the way, so search for the rest of the path
+        PrimitiveSearch astar = new PrimitiveSearch(from, dest, order);
+        List<Move> aStarPath = astar.findPath(maxMoves - pathMoves.size());
+        if (aStarPath == null) {
+            return null;
+        }
+        pathMoves.addAll(aStarPath);
+        return pathMoves;
+    }
+
+    /**
+     * Finds the shortest chain of positions from `from` to `dest` on the visibility graph using A* search.
+     * @param from the position to start the chain from.
+     * @param dest the position to get to.
+     * @return The positions to fly to in order (not including `from`, but including `dest`), or null if `from`
+     * and `dest` can't be connected through the graph.
+     */
+    public List<LongLat> findWaypoints(LongLat from, LongLat dest) {
+        int numNodes = nodeLongitudes.length;
+        // The start and destination are given the indices `numNodes` and `numNodes + 1`.
+        int startIndex = numNodes;
+        int destIndex = numNodes + 1;
+        if (isClear(from.longitude, from.latitude, dest.longitude, dest.latitude, 0)) {
+            return List.of(dest);
+        }
+
+        double[] fromEdges = getEdgesTo(from);
+        double[] destEdges = getEdgesTo(dest);
+
+        double[] costs = new double[numNodes + 2];
+        int[] parents = new int[numNodes + 2];
+        boolean[] explored = new boolean[numNodes + 2];
+        Arrays.fill(costs, Double.POSITIVE_INFINITY);
+        Arrays.fill(parents, -1);
+        costs[startIndex] = 0;
+
+        // The graph only has a few hundred nodes, so a linear scan for the next node to explore is fast enough.
+        while (true) {
+            int current = -1;
+            double currentTotalCost = Double.POSITIVE_INFINITY;
+            for (int i = 0; i < numNodes + 2; i++) {
+                if (!explored[i] && costs[i] != Double.POSITIVE_INFINITY) {
+                    double totalCost = costs[i] + distanceTo(i, from, dest);
+                    if (totalCost < currentTotalCost) {
+                        current = i;
+                        currentTotalCost = totalCost;
+                    }
+                }
+            }
+            if (current == -1) {
+                return null;
+            }
+            if (current == destIndex) {
+                break;
+            }
+            explored[current] = true;
+
+            for (int next = 0; next < numNodes + 2; next++) {
+                if (explored[next] || next == startIndex) {
+                    continue;
+                }
+                double edgeLength;
+                if (current == startIndex) {
+                    edgeLength = next == destIndex ? Double.POSITIVE_INFINITY : fromEdges[next];
+                } else if (next == destIndex) {
+                    edgeLength = destEdges[current];
+                } else {
+                    edgeLength = edgeLengths[current][next];
+                }
+                double newCost = costs[current] + edgeLength;
+                if (newCost < costs[next]) {
+                    costs[next] = newCost;
+                    parents[next] = current;
+                }
+            }
+        }
+
+        ArrayList<LongLat> waypoints = new ArrayList<>();
+        for (int node = destIndex; node != startIndex; node = parents[node]) {
+            waypoints.add(0, node == destIndex ? dest : new LongLat(nodeLongitudes[node], nodeLatitudes[node]));
+        }
+        return waypoints;
+    }
+
+    /**
+     * Makes moves towards `waypoint` from `from` until the drone is close to it.
+     * @param pathMoves the list of moves to add the moves made to.
+     * @param from the position to start from.
+     * @param waypoint the position to fly to.
+     * @param maxMoves the maximum number of moves `pathMoves` can be made of.
+     * @param order the order to associate the moves with.
+     * @return true if the drone got close to `waypoint`, false if a move was invalid or there weren't enough moves.
+     */
+    private boolean followStraightLine(ArrayList<Move> pathMoves, LongLat from, LongLat waypoint, int maxMoves,
+                                       Order order) {
+        // Allow for a few more moves than the straight line distance, as the moves are quantised to 10 degrees.
+        int movesAllowed = (int) Math.ceil(from.distanceTo(waypoint) / Drone.MOVE_LENGTH_IN_DEGREES) + 2;
+        while (!from.closeTo(waypoint)) {
+            // Make the moves towards the waypoint that are all at the same angle and known to be valid at once
+            int angle = from.angleTo(waypoint);
+            int numValidMoves = Move.getNumValidMoves(from, angle,
+                    Math.min(movesAllowed, Math.min(maxMoves - pathMoves.size(), numMovesToWaypoint(from, waypoint))));
+            if (numValidMoves > 0) {
+                do {
+                    Move nextMove = new Move(from, angle, order);
+                    movesAllowed--;
+                    pathMoves.add(nextMove);
+                    from = nextMove.getDest();
+                } while (--numValidMoves > 0 && !from.closeTo(waypoint) && from.angleTo(waypoint) == angle);
+                continue;
+            }
+
+            Move nextMove = new Move(from, waypoint, order);
+            if (movesAllowed-- == 0 || pathMoves.size() >= maxMoves || !nextMove.isValid()) {
+                return false;
+            }
+            pathMoves.add(nextMove);
+            from = nextMove.getDest();
+        }
+        return true;
+    }
+
+    /**
+     * Returns a number of moves that the drone can't go straight for without getting close to `waypoint`.
+     */
+    private static int numMovesToWaypoint(LongLat from, LongLat waypoint) {
+        return (int) Math.ceil(from.distanceTo(waypoint) / Drone.MOVE_LENGTH_IN_DEGREES) + 1;
+    }
+
+    /**
+     * Returns the straight line distance from the node with the given index to `dest`. Used as the heuristic of
+     * the A* search over the graph.
+     */
+    private double distanceTo(int node, LongLat from, LongLat dest) {
+        int numNodes = nodeLongitudes.length;
+        if (node == numNodes) {
+            return from.distanceTo(dest);
+        } else if (node == numNodes + 1) {
+            return 0;
+        }
+        return Math.hypot(dest.longitude - nodeLongitudes[node], dest.latitude - nodeLatitudes[node]);
+    }
+
+    /**
+     * Returns the length of the edges between `pos` and every corner node, or infinity for corners that
+     * can't be seen from `pos`.
+     */
+    private double[] getEdgesTo(LongLat pos) {
+        double[] edges = new double[nodeLongitudes.length];
+        for (int i = 0; i < nodeLongitudes.length; i++) {
+            edges[i] = Double.POSITIVE_INFINITY;
+            if (isClear(pos.longitude, pos.latitude, nodeLongitudes[i], nodeLatitudes[i], 0)) {
+                edges[i] = Math.hypot(nodeLongitudes[i] - pos.longitude, nodeLatitudes[i] - pos.latitude);
+            }
+        }
+        return edges;
+    }
+
+    /**
+     * Checks whether the straight line between two positions doesn't cross a no-fly zone and stays at least
+     * `clearance` degrees away from them.
+     */
+    private boolean isClear(double x1, double y1, double x2, double y2, double clearance) {
+        Line2D line = new Line2D.Double(x1, y1, x2, y2);
+        for (Line2D side : sides) {
+            if (line.intersectsLine(side)) {
+                return false;
+            }
+            if (clearance > 0 && segmentDistance(line, side) < clearance) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Returns the shortest distance between two line segments that don't intersect.
+     */
+    private static double segmentDistance(Line2D a, Line2D b) {
+        return Math.min(
+                Math.min(a.ptSegDist(b.getP1()), a.ptSegDist(b.getP2())),
+                Math.min(b.ptSegDist(a.getP1()), b.ptSegDist(a.getP2())));
+    }
+
+    /**
+     * Returns the convex corners of a no-fly zone pushed outwards by `CORNER_CLEARANCE_IN_DEGREES`. Corners that
+     * end up outside the confinement area or inside another no-fly zone are left out. Concave corners are never
+     * on a shortest path around the no-fly zones, so they are not needed in the graph.
+     * @param polygon the closed ring of vertices of the no-fly zone.
+     * @return the corner nodes of the no-fly zone.
+     */
+    private List<Point2D> getOuterCorners(List<Point2D> polygon) {
+        // The ring is closed, so the last vertex is the same as the first.
+        int numVertices = polygon.size() - 1;
+        double signedArea = 0;
+        for (int i = 0; i < numVertices; i++) {
+            Point2D p = polygon.get(i);
+            Point2D q = polygon.get(i + 1);
+            signedArea += p.getX() * q.getY() - q.getX() * p.getY();
+        }
+
+        ArrayList<Point2D> corners = new ArrayList<>();
+        for (int i = 0; i < numVertices; i++) {
+            Point2D prev = polygon.get((i + numVertices - 1) % numVertices);
+            Point2D curr = polygon.get(i);
+            Point2D next = polygon.get(i + 1);
+
+            double inX = curr.getX() - prev.getX();
+            double inY = curr.getY() - prev.getY();
+            double outX = next.getX() - curr.getX();
+            double outY = next.getY() - curr.getY();
+            double turn = inX * outY - inY * outX;
+            // A corner is convex if the polygon turns in the same direction as its winding at that corner.
+            if (turn * signedArea <= 0) {
+                continue;
+            }
+
+            // Push the corner out along the bisector of its two sides.
+            double inLength = Math.hypot(inX, inY);
+            double outLength = Math.hypot(outX, outY);
+            double dirX = inX / inLength - outX / outLength;
+            double dirY = inY / inLength - outY / outLength;
+            double dirLength = Math.hypot(dirX, dirY);
+            if (dirLength == 0) {
+                continue;
+            }
+            var corner = new LongLat(curr.getX() + CORNER_CLEARANCE_IN_DEGREES * dirX / dirLength,
+                    curr.getY() + CORNER_CLEARANCE_IN_DEGREES * dirY / dirLength);
+            if (corner.isConfined() && zones.stream().noneMatch(z -> z.contains(corner.longitude, corner.latitude))) {
+                corners.add(new Point2D.Double(corner.longitude, corner.latitude));
+            }
+        }
+        return corners;
+    }
+}
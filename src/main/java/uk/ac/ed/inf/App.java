@@ -1,16 +1,33 @@
 package uk.ac.ed.inf;
 
+import java.io.OutputStreamWriter;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.time.LocalDate;
 import java.util.ArrayList;
-import java.util.List;
 import java.util.Objects;
 
 public class App {
 
+    /**
+     * The file the paths found by the drone are saved to, so that the next run can start with them.
+     */
+    private static final Path PATH_CACHE_SNAPSHOT = Path.of("path-cache.txt");
+
+    /**
+     * The file the locations of the what three words phrases are saved to, so that the next run doesn't have to fetch
+     * them from the webserver.
+     */
+    private static final Path W3W_CACHE_SNAPSHOT = Path.of("w3w-cache.txt");
+
     public static void main(String[] args) {
-        WebServerClient.instance.setServer("localhost", 80);
-        Menus.instance.fetchMenu();
+        W3WCache.instance.load(W3W_CACHE_SNAPSHOT);
+        DataSource.instance = new ServerDataSource("localhost", 80, "localhost", 1527);
         DBClient.instance.setServer("localhost", 1527);
-        processOrdersForDate(2022, 3, 1);
+        PathCache.instance.load(PATH_CACHE_SNAPSHOT);
+        processOrdersForDate(LocalDate.of(2022, 4, 1));
+        PathCache.instance.save(PATH_CACHE_SNAPSHOT);
+        W3WCache.instance.save(W3W_CACHE_SNAPSHOT);
         return;
 //        final int DATE, MONTH, YEAR, WEBSERVER_PORT, DB_PORT;
 //
@@ -22,10 +39,9 @@ public class App {
 //            WEBSERVER_PORT = Integer.parseInt(args[3]);
 //            DB_PORT = Integer.parseInt(args[4]);
 //
-//            WebServerClient.instance.setServer("localhost", WEBSERVER_PORT);
-//            Menus.instance.fetchMenu();
+//            DataSource.instance = new ServerDataSource("localhost", WEBSERVER_PORT, "localhost", DB_PORT);
 //            DBClient.instance.setServer("localhost", DB_PORT);
-//            processOrdersForDate(YEAR, MONTH, DATE);
+//            processOrdersForDate(LocalDate.of(YEAR, MONTH, DATE));
 //        } catch (ArrayIndexOutOfBoundsException e) {
 //            System.out.println("Not enough arguments. Please specify date, month, year of orders to process, and " +
 //                    "webserver and database ports.");
@@ -34,34 +50,24 @@ public class App {
 
     }
 
-    private static void processOrdersForDate(Integer year, Integer month, Integer date) {
+    private static void processOrdersForDate(LocalDate date) {
         // get orders
-        ArrayList<Order> orders = DBClient.instance.getOrders(year, month, date);
+        ArrayList<Order> orders = DataSource.instance.getOrders(date);
 
         LongLat appletonTower = new LongLat(LongLat.APPLETON_TOWER_LONGITUDE, LongLat.APPLETON_TOWER_LATITUDE);
-        // process orders and get results
-        Drone drone = new Drone(appletonTower, orders);
-
-        // output to flightpath db
+        // process orders and write the flight path to the db while the drone is finding it
+        DBClient.ResultsWriter resultsWriter = DBClient.instance.openResultsWriter();
+        Drone drone = new Drone(appletonTower, orders, resultsWriter::write);
+        resultsWriter.commit(drone.getOrdersDelivered());
         ArrayList<Move> flightPath = drone.getMoves();
-        DBClient.instance.insertFlightPath(flightPath);
-        DBClient.instance.insertDeliveries(drone.getOrdersDelivered());
-
-        ArrayList<LongLat> deliveryPath = new ArrayList<>();
-        ArrayList<LongLat> deliveryStops = new ArrayList<>();
-        if (flightPath.size() > 0) {
-            deliveryPath.add(flightPath.get(0).getOrig());
-            for (Move move : flightPath) {
-                if (move.getAngle() == Drone.SPECIAL_HOVERING_ANGLE) {
-                    deliveryStops.add(move.getDest());
-                } else {
-                    deliveryPath.add(move.getDest());
-                }
-            }
 
-            // generate geojson file
-            GeoJsonMap mm = new GeoJsonMap();
-            System.out.println(mm.createGeoJsonMap(deliveryStops, deliveryPath).toJson());
+        if (!flightPath.isEmpty()) {
+            // The drone prints each order it delivers while it finds the flight path, so the map is only written
+            // once the flight path is complete, rather than streamed to the same output while it's being found
+            GeoJsonWriter geoJsonWriter = new GeoJsonWriter(new OutputStreamWriter(System.out, StandardCharsets.UTF_8));
+            geoJsonWriter.writeMoves(flightPath);
+            geoJsonWriter.finish();
+            System.out.println();
         } else {
             System.out.println("Flight path has a size of 0");
         }
@@ -0,0 +1,177 @@
+package uk.ac.ed.inf;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.time.LocalDate;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * A class that plans the deliveries of every day in a range of dates, with several days planned at the same time.
+ * The data is read from `DataSource.instance`. The orders of all the days are read at once before the days are
+ * planned, and the menus, what three words locations and no-fly zones are fetched once and shared by all the days.
+ * The flight path of each day is written to its own GeoJSON file named `drone-DD-MM-YYYY.geojson`.
+ * The `flightpath` and `deliveries` tables only ever hold a single day, so they aren't written in batch mode.
+ * @author Vivek Raja s1864074
+ */
+public class BatchPlanner {
+
+    /**
+     * The format of the date in the names of the GeoJSON files.
+     */
+    private static final DateTimeFormatter FILE_NAME_DATE_FORMAT = DateTimeFormatter.ofPattern("dd-MM-yyyy");
+
+    /**
+     * The directory the GeoJSON files are written to.
+     */
+    private final Path outputDirectory;
+
+    /**
+     * The number of days planned at the same time.
+     */
+    private final int numThreads;
+
+    /**
+     * Instantiates a BatchPlanner object.
+     * @param outputDirectory the directory the GeoJSON files are written to.
+     * @param numThreads the number of days planned at the same time.
+     */
+    public BatchPlanner(Path outputDirectory, int numThreads) {
+        this.outputDirectory = outputDirectory;
+        this.numThreads = numThreads;
+    }
+
+    /**
+     * Plans the deliveries of every day from `firstDate` to `lastDate` (inclusive).
+     * @param firstDate the first day to plan.
+     * @param lastDate the last day to plan.
+     * @return The result of each day, in order of date.
+     */
+    public Map<LocalDate, DayResult> planDates(LocalDate firstDate, LocalDate lastDate) {
+        Map<LocalDate, ArrayList<Order>> ordersOfEachDay = DataSource.instance.getOrders(firstDate, lastDate);
+
+        ExecutorService executor = Executors.newFixedThreadPool(numThreads);
+        Map<LocalDate, Future<DayResult>> futures = new LinkedHashMap<>();
+        for (LocalDate date = firstDate; !date.isAfter(lastDate); date = date.plusDays(1)) {
+            LocalDate day = date;
+            ArrayList<Order> orders = ordersOfEachDay.getOrDefault(day, new ArrayList<>());
+            futures.put(day, executor.submit(() -> planDate(day, orders)));
+        }
+        executor.shutdown();
+
+        Map<LocalDate, DayResult> results = new LinkedHashMap<>();
+        for (Map.Entry<LocalDate, Future<DayResult>> future : futures.entrySet()) {
+            try {
+                results.put(future.getKey(), future.getValue().get());
+            } catch (InterruptedException | ExecutionException e) {
+                System.err.println("Unable to plan the deliveries for " + future.getKey() + ". Error message: "
+                        + e.getMessage() + ".");
+            }
+        }
+        return results;
+    }
+
+    /**
+     * Plans the deliveries of a single day and writes its flight path to a GeoJSON file.
+     * @param date the day to plan.
+     * @param orders the orders of the day.
+     * @return The result of the day.
+     */
+    private DayResult planDate(LocalDate date, ArrayList<Order> orders) {
+        LongLat appletonTower = new LongLat(LongLat.APPLETON_TOWER_LONGITUDE, LongLat.APPLETON_TOWER_LATITUDE);
+        if (orders.isEmpty()) {
+            // A day without orders has no flight path, so no map is written for it
+            return new DayResult(0, new ArrayList<>(), 0);
+        }
+
+        // The flight path is written to the map as the drone finds it
+        Drone drone;
+        Path file = outputDirectory.resolve("drone-" + date.format(FILE_NAME_DATE_FORMAT) + ".geojson");
+        try (GeoJsonWriter geoJsonWriter = new GeoJsonWriter(file)) {
+            drone = new Drone(appletonTower, orders, geoJsonWriter::writeMoves);
+        } catch (IOException e) {
+            System.err.println("There was an error in writing the GeoJSON file to the given filename: " + file);
+            System.exit(1);
+            return null;
+        }
+        return new DayResult(orders.size(), drone.getOrdersDelivered(), drone.getMoves().size());
+    }
+
+    /**
+     * The results of planning the deliveries of a single day.
+     */
+    public static class DayResult {
+
+        /**
+         * The number of orders placed for the day.
+         */
+        public final int numOrders;
+
+        /**
+         * The number of orders delivered.
+         */
+        public final int numOrdersDelivered;
+
+        /**
+         * The total cost (in pence) of the orders delivered.
+         */
+        public final int penceDelivered;
+
+        /**
+         * The number of moves the drone made.
+         */
+        public final int numMoves;
+
+        DayResult(int numOrders, List<Order> ordersDelivered, int numMoves) {
+            this.numOrders = numOrders;
+            this.numOrdersDelivered = ordersDelivered.size();
+            this.penceDelivered = ordersDelivered.stream().mapToInt(Order::getDeliveryCost).sum();
+            this.numMoves = numMoves;
+        }
+
+        @Override
+        public String toString() {
+            return String.format("%d/%d orders delivered, %d pence, %d moves", numOrdersDelivered, numOrders,
+                    penceDelivered, numMoves);
+        }
+    }
+
+    /**
+     * Plans the deliveries of every day in a range of dates.
+     * @param args the first and last dates (as YYYY-MM-DD), either the webserver and database ports or `--local` to
+     *             read the data from `website/` and `database/orders.tsv` instead, and optionally the number of days
+     *             to plan at the same time.
+     */
+    public static void main(String[] args) {
+        boolean isLocal = args.length >= 3 && args[2].equals("--local");
+        if (args.length < (isLocal ? 3 : 4)) {
+            System.out.println("Not enough arguments. Please specify the first and last dates (YYYY-MM-DD) to " +
+                    "process, the webserver and database ports (or --local), and optionally the number of threads.");
+            System.exit(1);
+        }
+
+        LocalDate firstDate = LocalDate.parse(args[0]);
+        LocalDate lastDate = LocalDate.parse(args[1]);
+        int numThreadsArg = isLocal ? 3 : 4;
+        int numThreads = args.length > numThreadsArg ? Integer.parseInt(args[numThreadsArg])
+                : Runtime.getRuntime().availableProcessors();
+
+        if (isLocal) {
+            DataSource.instance = new LocalDataSource(Path.of("website"), Path.of("database/orders.tsv"));
+        } else {
+            DataSource.instance = new ServerDataSource("localhost", Integer.parseInt(args[2]), "localhost",
+                    Integer.parseInt(args[3]));
+        }
+
+        BatchPlanner planner = new BatchPlanner(Path.of("."), numThreads);
+        planner.planDates(firstDate, lastDate)
+                .forEach((date, result) -> System.out.println(date + ": " + result));
+    }
+}
@@ -2,17 +2,61 @@ package uk.ac.ed.inf;
 
 import java.sql.*;
 import java.sql.Date;
+import java.time.LocalDate;
 import java.util.*;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
 
 public class DBClient {
 
 
     public static DBClient instance = new DBClient("localhost", 1527);
 
-    private static Connection conn;
-    private static PreparedStatement selectOrder;
-    private static PreparedStatement selectOrderDetails;
-    private static Statement statement;
+    /**
+     * The URL of the database. The connection is only made when the client is first used.
+     */
+    private String databaseURL;
+
+    // The connection and statements belong to each client, so separate clients can be used from separate threads.
+    private Connection conn;
+    private PreparedStatement selectOrdersWithDetails;
+    private Statement statement;
+
+    // The insert statements are prepared once when their table is created and reused for every row.
+    private PreparedStatement insertFlightPath;
+    private PreparedStatement insertDelivery;
+
+    /**
+     * The default number of moves sent to the database at a time.
+     */
+    public static final int DEFAULT_FLIGHT_PATH_BATCH_SIZE = 500;
+
+    /**
+     * The default number of deliveries sent to the database at a time.
+     */
+    public static final int DEFAULT_DELIVERIES_BATCH_SIZE = 50;
+
+    /**
+     * The system properties that set the batch sizes, e.g. `java -DflightPathBatchSize=1000 uk.ac.ed.inf.App`.
+     */
+    public static final String FLIGHT_PATH_BATCH_SIZE_PROPERTY = "flightPathBatchSize";
+    public static final String DELIVERIES_BATCH_SIZE_PROPERTY = "deliveriesBatchSize";
+
+    private final int flightPathBatchSize = getBatchSize(FLIGHT_PATH_BATCH_SIZE_PROPERTY,
+            DEFAULT_FLIGHT_PATH_BATCH_SIZE);
+    private final int deliveriesBatchSize = getBatchSize(DELIVERIES_BATCH_SIZE_PROPERTY,
+            DEFAULT_DELIVERIES_BATCH_SIZE);
+
+    /**
+     * The number of moves added to the batch of `insertFlightPath` that haven't been sent to the database yet.
+     */
+    private int numMovesInBatch = 0;
+
+    /**
+     * Whether the flightpath table has a droneId column, which it only has when it holds the flight paths of a fleet.
+     */
+    private boolean flightPathHasDroneId = false;
 
     public DBClient(String host, int port) {
         setServer(host, port);
@@ -20,11 +64,28 @@ public class DBClient {
 
     private DBClient() {}
 
+    /**
+     * Sets the host and port of the database. The client connects to the database when it is next used.
+     * @param host The machine that hosts the database.
+     * @param port The port the database on the host is running on.
+     */
     public void setServer(String host, int port) {
-        String databaseURL = String.format("jdbc:derby://%s:%d/derbyDB", host, port);
+        if (this.conn != null) {
+            close();
+            this.conn = null;
+        }
+        this.databaseURL = String.format("jdbc:derby://%s:%d/derbyDB", host, port);
+    }
+
+    /**
+     * Connects to the database and prepares the statements, if the client isn't connected yet.
+     */
+    private void connectIfNeeded() {
+        if (this.conn != null) {
+            return;
+        }
         this.conn = connect(databaseURL);
-        this.selectOrder = setSelectOrderQuery();
-        this.selectOrderDetails = setSelectOrderDetailsQuery();
+        this.selectOrdersWithDetails = setSelectOrdersWithDetailsQuery();
         try {
             this.statement = conn.createStatement();
         } catch (SQLException e) {
@@ -43,76 +104,102 @@ public class DBClient {
         return null;
     }
 
-    private PreparedStatement setSelectOrderQuery() {
+    private PreparedStatement setSelectOrdersWithDetailsQuery() {
         try {
-            return this.conn.prepareStatement("SELECT * FROM orders WHERE deliveryDate = ?");
+            // Orders without any items are kept by the left join, with a null item.
+            return this.conn.prepareStatement("SELECT o.orderNo, o.deliveryDate, o.customer, o.deliverTo, d.item " +
+                    "FROM orders o LEFT JOIN orderDetails d ON o.orderNo = d.orderNo " +
+                    "WHERE o.deliveryDate BETWEEN ? AND ?");
         } catch (SQLException e) {
             e.printStackTrace();
         }
         return null;
     }
 
-    private PreparedStatement setSelectOrderDetailsQuery() {
-        try {
-            return conn.prepareStatement("SELECT * FROM orderDetails WHERE orderNo = ?");
-        } catch (SQLException e) {
-            e.printStackTrace();
-        }
-        return null;
+    public ArrayList<Order> getOrders(int year, int month, int date) {
+        GregorianCalendar gc = new GregorianCalendar(year, month, date);
+        return getOrders(new java.sql.Date(gc.getTimeInMillis()));
     }
 
-    public ArrayList<Order> getOrders(int year, int month, int date) {
+    public ArrayList<Order> getOrders(LocalDate date) {
+        return getOrders(java.sql.Date.valueOf(date));
+    }
+
+    private ArrayList<Order> getOrders(java.sql.Date sqlDate) {
+        return getOrders(sqlDate, sqlDate).getOrDefault(sqlDate.toLocalDate(), new ArrayList<>());
+    }
+
+    /**
+     * Returns the orders of every day from `firstDate` to `lastDate` (inclusive). The orders and their items are
+     * fetched with a single query.
+     * @param firstDate the first day to get the orders of.
+     * @param lastDate the last day to get the orders of.
+     * @return The orders of each day that has orders, in order of date.
+     */
+    public Map<LocalDate, ArrayList<Order>> getOrders(LocalDate firstDate, LocalDate lastDate) {
+        return getOrders(java.sql.Date.valueOf(firstDate), java.sql.Date.valueOf(lastDate));
+    }
+
+    private Map<LocalDate, ArrayList<Order>> getOrders(java.sql.Date firstDate, java.sql.Date lastDate) {
+        connectIfNeeded();
         if (conn == null) {
             System.out.println("Conn is null");
         }
 
-        ArrayList<Order> orders = new ArrayList<>();
-
-        GregorianCalendar gc = new GregorianCalendar(year, month, date);
-        java.sql.Date sqlDate = new java.sql.Date(gc.getTimeInMillis());
+        // Each order is on as many rows as it has items, so group the rows by order number.
+        Map<String, DataSource.OrderRow> orderRows = new LinkedHashMap<>();
         try {
-            selectOrder.setDate(1, sqlDate);
+            selectOrdersWithDetails.setDate(1, firstDate);
+            selectOrdersWithDetails.setDate(2, lastDate);
 
-            ResultSet rs = selectOrder.executeQuery();
+            ResultSet rs = selectOrdersWithDetails.executeQuery();
             while (rs.next()) {
                 String orderNo = rs.getString("orderNo");
-                Date deliveryDate = rs.getDate("deliveryDate");
-                String customer = rs.getString("customer");
-                String deliverTo = rs.getString("deliverTo");
-                ArrayList<String> itemNames = getOrderDetails(orderNo);
-                Order order = new Order(orderNo, deliveryDate, customer, deliverTo, itemNames);
-                orders.add(order);
+                DataSource.OrderRow orderRow = orderRows.get(orderNo);
+                if (orderRow == null) {
+                    orderRow = new DataSource.OrderRow(orderNo, rs.getDate("deliveryDate").toLocalDate(),
+                            rs.getString("customer"), rs.getString("deliverTo"));
+                    orderRows.put(orderNo, orderRow);
+                }
+                String item = rs.getString("item");
+                if (item != null) {
+                    orderRow.itemNames.add(item);
+                }
             }
+            rs.close();
         } catch (SQLException e) {
             disconnect();
             e.printStackTrace();
             System.exit(1);
         }
-        return orders;
+
+        return DataSource.toOrders(orderRows.values());
     }
 
-    public ArrayList<String> getOrderDetails(String orderNo) {
-        ArrayList<String> items = new ArrayList<>();
+    /**
+     * Closes the connection to the database. The client can't be used after it is closed.
+     */
+    public void close() {
+        if (conn == null) {
+            return;
+        }
         try {
-            selectOrderDetails.setString(1, orderNo);
-            ResultSet rs = selectOrderDetails.executeQuery();
-            while (rs.next()) {
-                String item = rs.getString("item");
-                items.add(item);
+            statement.close();
+            if (insertFlightPath != null) {
+                insertFlightPath.close();
+            }
+            if (insertDelivery != null) {
+                insertDelivery.close();
             }
         } catch (SQLException e) {
-            disconnect();
             e.printStackTrace();
-            System.exit(1);
         }
-
-        return items;
+        disconnect();
     }
 
     private void disconnect() {
         try {
-            selectOrder.close();
-            selectOrderDetails.close();
+            selectOrdersWithDetails.close();
             conn.close();
         } catch (SQLException e) {
             e.printStackTrace();
@@ -120,85 +207,281 @@ public class DBClient {
         }
     }
 
-    private void createFlightPathTable() {
+    /**
+     * Replaces the flightpath table with an empty one. This is run in the transaction that inserts the flight path,
+     * so the old table is only dropped if the new rows are committed.
+     * @param withDroneId whether to add a droneId column, for the flight paths of a fleet of drones.
+     */
+    private void createFlightPathTable(boolean withDroneId) throws SQLException {
+        DatabaseMetaData databaseMetadata = this.conn.getMetaData();
+        String tableName = "flightpath";
+        ResultSet resultSet =
+                databaseMetadata.getTables(null, null, tableName.toUpperCase(), null);
+
+        // If the resultSet is not empty then the table exists, so we can drop it
+        if (resultSet.next()) {
+            statement.execute("drop table " + tableName);
+        }
+
+        if (withDroneId) {
+            statement.execute("CREATE TABLE " + tableName + " (orderNo VARCHAR(8), fromLongitude DOUBLE, fromLatitude DOUBLE, angle INT, toLongitude DOUBLE, toLatitude DOUBLE, droneId INT)");
+            insertFlightPath = conn.prepareStatement("INSERT INTO flightpath VALUES (?, ?, ?, ?, ?, ?, ?)");
+        } else {
+            statement.execute("CREATE TABLE " + tableName + " (orderNo VARCHAR(8), fromLongitude DOUBLE, fromLatitude DOUBLE, angle INT, toLongitude DOUBLE, toLatitude DOUBLE)");
+            insertFlightPath = conn.prepareStatement("INSERT INTO flightpath VALUES (?, ?, ?, ?, ?, ?)");
+        }
+        flightPathHasDroneId = withDroneId;
+        numMovesInBatch = 0;
+    }
+
+    /**
+     * Replaces the deliveries table with an empty one. This is run in the transaction that inserts the deliveries, so
+     * the old table is only dropped if the new rows are committed.
+     */
+    private void createDeliveriesTable() throws SQLException {
+        DatabaseMetaData databaseMetadata = this.conn.getMetaData();
+        String tableName = "deliveries";
+        ResultSet resultSet =
+                databaseMetadata.getTables(null, null, tableName.toUpperCase(), null);
+
+        // If the resultSet is not empty then the table exists, so we can drop it
+        if (resultSet.next()) {
+            statement.execute("drop table " + tableName);
+        }
+
+        statement.execute("CREATE TABLE " + tableName + " (orderNo VARCHAR(8), deliveredTo VARCHAR(19), costInPence INT)");
+        insertDelivery = conn.prepareStatement("INSERT INTO deliveries VALUES (?, ?, ?)");
+    }
+
+    /**
+     * Returns the batch size set by the system property `property`, or `defaultBatchSize` if it isn't set. If it isn't
+     * a positive number, the method prints the error to screen and exits with status 1.
+     */
+    private static int getBatchSize(String property, int defaultBatchSize) {
+        String value = System.getProperty(property);
+        if (value == null) {
+            return defaultBatchSize;
+        }
         try {
-            DatabaseMetaData databaseMetadata = this.conn.getMetaData();
-            String tableName = "flightpath";
-            ResultSet resultSet =
-                    databaseMetadata.getTables(null, null, tableName.toUpperCase(), null);
-
-            // If the resultSet is not empty then the table exists, so we can drop it
-            if (resultSet.next()) {
-                statement.execute("drop table " + tableName);
+            int batchSize = Integer.parseInt(value);
+            if (batchSize > 0) {
+                return batchSize;
+            }
+        } catch (NumberFormatException e) {
+            // Reported below
+        }
+        System.err.println("Fatal error: The system property " + property + " must be a positive number of rows, " +
+                "but is " + value + ".");
+        System.exit(1);
+
+        // We won't ever get here since we always `System.exit(1)` for an invalid batch size.
+        return defaultBatchSize;
+    }
+
+    /**
+     * Replaces the flightpath table with the moves of the drone in a single transaction.
+     * @param moves the moves the drone made.
+     */
+    public void insertFlightPath(List<Move> moves) {
+        runInTransaction(() -> {
+            createFlightPathTable(false);
+            addFlightPathBatches(moves, true);
+        });
+    }
+
+    /**
+     * Replaces the deliveries table with the delivered orders in a single transaction.
+     * @param orders the orders the drone delivered.
+     */
+    public void insertDeliveries(List<Order> orders) {
+        runInTransaction(() -> {
+            createDeliveriesTable();
+            addDeliveriesBatches(orders);
+        });
+    }
+
+    /**
+     * Replaces the flightpath and deliveries tables with the results of a fleet of drones in a single transaction.
+     * The flightpath table has an extra droneId column, which is the index of the drone's moves in `flightPaths`.
+     * @param flightPaths the moves each drone made.
+     * @param orders the orders the drones delivered.
+     */
+    public void insertFleetResults(List<? extends List<Move>> flightPaths, List<Order> orders) {
+        runInTransaction(() -> {
+            createFlightPathTable(true);
+            createDeliveriesTable();
+            for (int droneId = 0; droneId < flightPaths.size(); droneId++) {
+                addFlightPathBatches(flightPaths.get(droneId), droneId, false);
             }
+            addFlightPathBatches(List.of(), true);
+            addDeliveriesBatches(orders);
+        });
+    }
 
-            statement.execute("CREATE TABLE " + tableName + " (orderNo VARCHAR(8), fromLongitude DOUBLE, fromLatitude DOUBLE, angle INT, toLongitude DOUBLE, toLatitude DOUBLE)");
+    /**
+     * Replaces the flightpath and deliveries tables and returns a writer that inserts the moves of the drone while
+     * the drone is still finding them. The moves and deliveries are inserted in a single transaction, which is
+     * committed by `ResultsWriter.commit`. The client shouldn't be used for anything else until then.
+     * @return The writer to give the moves of the drone to.
+     */
+    public ResultsWriter openResultsWriter() {
+        connectIfNeeded();
+        return new ResultsWriter();
+    }
+
+    /**
+     * Adds the moves to the batch of the insert statement of the flightpath table. A batch is sent to the database
+     * each time it has `flightPathBatchSize` moves in it.
+     * @param moves the moves to add.
+     * @param flush whether to also send the last, partially filled, batch.
+     */
+    private void addFlightPathBatches(List<Move> moves, boolean flush) throws SQLException {
+        addFlightPathBatches(moves, 0, flush);
+    }
+
+    /**
+     * Adds the moves of a drone of a fleet to the batch of the insert statement of the flightpath table. The drone id
+     * is only inserted if the table has a droneId column.
+     * @param moves the moves to add.
+     * @param droneId the drone that made the moves.
+     * @param flush whether to also send the last, partially filled, batch.
+     */
+    private void addFlightPathBatches(List<Move> moves, int droneId, boolean flush) throws SQLException {
+        for (Move move : moves) {
+            Order order = move.getOrder();
+            insertFlightPath.setString(1, order == null ? "" : order.getOrderNumber());
+            insertFlightPath.setDouble(2, move.getOrig().longitude);
+            insertFlightPath.setDouble(3, move.getOrig().latitude);
+            insertFlightPath.setInt(4, move.getAngle());
+            insertFlightPath.setDouble(5, move.getDest().longitude);
+            insertFlightPath.setDouble(6, move.getDest().latitude);
+            if (flightPathHasDroneId) {
+                insertFlightPath.setInt(7, droneId);
+            }
+            insertFlightPath.addBatch();
+            if (++numMovesInBatch == flightPathBatchSize) {
+                insertFlightPath.executeBatch();
+                numMovesInBatch = 0;
+            }
+        }
+        if (flush && numMovesInBatch > 0) {
+            insertFlightPath.executeBatch();
+            numMovesInBatch = 0;
+        }
+    }
+
+    /**
+     * Inserts the orders into the deliveries table, `deliveriesBatchSize` orders at a time.
+     * @param orders the delivered orders.
+     */
+    private void addDeliveriesBatches(List<Order> orders) throws SQLException {
+        int numOrdersInBatch = 0;
+        for (Order order : orders) {
+            insertDelivery.setString(1, order.getOrderNumber());
+            insertDelivery.setString(2, order.getDeliverTo());
+            insertDelivery.setInt(3, order.getDeliveryCost());
+            insertDelivery.addBatch();
+            if (++numOrdersInBatch == deliveriesBatchSize) {
+                insertDelivery.executeBatch();
+                numOrdersInBatch = 0;
+            }
+        }
+        if (numOrdersInBatch > 0) {
+            insertDelivery.executeBatch();
+        }
+    }
+
+    /**
+     * Runs the statements of `action` in a single transaction. The transaction is rolled back if any of them fail.
+     * @param action the statements to run.
+     */
+    private void runInTransaction(SQLAction action) {
+        connectIfNeeded();
+        try {
+            conn.setAutoCommit(false);
+            action.run();
+            conn.commit();
+            conn.setAutoCommit(true);
         } catch (SQLException e) {
-            disconnect();
+            rollback();
             e.printStackTrace();
             System.exit(1);
         }
     }
 
-    private void createDeliveriesTable() {
+    private void rollback() {
         try {
-            DatabaseMetaData databaseMetadata = this.conn.getMetaData();
-            String tableName = "deliveries";
-            ResultSet resultSet =
-                    databaseMetadata.getTables(null, null, tableName.toUpperCase(), null);
-
-            // If the resultSet is not empty then the table exists, so we can drop it
-            if (resultSet.next()) {
-                statement.execute("drop table " + tableName);
-            }
-
-            statement.execute("CREATE TABLE " + tableName + " (orderNo VARCHAR(8), deliveredTo VARCHAR(19), costInPence INT)");
+            conn.rollback();
+            conn.setAutoCommit(true);
         } catch (SQLException e) {
-            disconnect();
             e.printStackTrace();
-            System.exit(1);
         }
     }
 
-    public void insertFlightPath(ArrayList<Move> moves) {
-        createFlightPathTable();
+    /**
+     * Statements run against the database by `runInTransaction`.
+     */
+    private interface SQLAction {
+        void run() throws SQLException;
+    }
 
-        for (Move move : moves) {
-            Order order = move.getOrder();
-            String orderNo;
-            if (order == null) {
-                orderNo = "";
-            } else {
-                orderNo = order.getOrderNumber();
-            }
-            double fromLongitude = move.getOrig().longitude;
-            double fromLatitude = move.getOrig().latitude;
-            int angle = move.getAngle();
-            double toLongitude = move.getDest().longitude;
-            double toLatitude = move.getDest().latitude;
+    /**
+     * Inserts the moves of the drone on a background thread while the drone is still finding them, so that writing
+     * the flight path overlaps with planning it. Moves are sent to the database in batches of `flightPathBatchSize`.
+     */
+    public class ResultsWriter {
+
+        /**
+         * The thread the moves are inserted on, so that only one thread uses the connection at a time.
+         */
+        private final ExecutorService writerThread = Executors.newSingleThreadExecutor();
+
+        private ResultsWriter() {
+            writerThread.submit(() -> runOnWriterThread(() -> {
+                conn.setAutoCommit(false);
+                createFlightPathTable(false);
+                createDeliveriesTable();
+            }));
+        }
+
+        /**
+         * Queues the moves to be inserted into the flightpath table.
+         * @param moves the moves the drone made, in order.
+         */
+        public void write(List<Move> moves) {
+            List<Move> movesToWrite = new ArrayList<>(moves);
+            writerThread.submit(() -> runOnWriterThread(() -> addFlightPathBatches(movesToWrite, false)));
+        }
+
+        /**
+         * Inserts the rest of the moves and the delivered orders, commits the transaction, and waits for it to
+         * finish.
+         * @param orders the orders the drone delivered.
+         */
+        public void commit(List<Order> orders) {
+            writerThread.submit(() -> runOnWriterThread(() -> {
+                addFlightPathBatches(List.of(), true);
+                addDeliveriesBatches(orders);
+                conn.commit();
+                conn.setAutoCommit(true);
+            }));
+            writerThread.shutdown();
             try {
-                statement.execute("INSERT INTO flightpath VALUES ('" + orderNo + "', " + fromLongitude + ", " + fromLatitude + ", " + angle + ", " + toLongitude + ", " + toLatitude + ")");
-            } catch (SQLException e) {
-                e.printStackTrace();
+                writerThread.awaitTermination(Long.MAX_VALUE, TimeUnit.NANOSECONDS);
+            } catch (InterruptedException e) {
+                System.err.println("Interrupted while writing the flight path. Error message: " + e.getMessage() + ".");
                 System.exit(1);
             }
         }
-    }
-
-    public void insertDeliveries(List<Order> orders) {
-        createDeliveriesTable();
 
-        for (Order order : orders) {
-            String orderNo = order.getOrderNumber();
-            String deliveredTo = order.getDeliverTo();
-            Integer cost = order.getDeliveryCost();
+        private void runOnWriterThread(SQLAction action) {
             try {
-                statement.execute("INSERT INTO deliveries VALUES ('" + orderNo + "', '" + deliveredTo + "', " + cost + ")");
+                action.run();
             } catch (SQLException e) {
+                rollback();
                 e.printStackTrace();
                 System.exit(1);
             }
         }
     }
-
 }
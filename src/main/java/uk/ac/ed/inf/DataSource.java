@@ -0,0 +1,120 @@
+package uk.ac.ed.inf;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.CompletableFuture;
+import java.util.stream.Collectors;
+
+/**
+ * This class is where the data the drone plans with comes from: the menus of the shops, the no-fly zones, the details
+ * of what three words phrases and the orders. `ServerDataSource` gets the data from the webserver and the database,
+ * and `LocalDataSource` reads it from local files, so that the drone can plan without either of them running.
+ * Ideally, this class should be used through the instance available in the public `instance` field. By default, the
+ * instance gets the data from the webserver and database on their default ports. Nothing is fetched from them until
+ * the data is first needed.
+ * @author Vivek Raja s1864074
+ */
+public abstract class DataSource {
+
+    /**
+     * An instance of the class. Replace it before the data is first needed to use another source.
+     */
+    public static DataSource instance = new ServerDataSource("localhost", 80, "localhost", 1527);
+
+    /**
+     * The path of the menus of the shops on the webserver.
+     */
+    static final String MENUS_PATH = "/menus/menus.json";
+
+    /**
+     * The path of the no-fly zones on the webserver.
+     */
+    static final String NO_FLY_ZONES_PATH = "/buildings/no-fly-zones.geojson";
+
+    /**
+     * Returns the menus of the shops as a JSON list of shops.
+     */
+    public abstract String getMenus();
+
+    /**
+     * Returns the no-fly zones as a GeoJSON feature collection of polygons.
+     */
+    public abstract String getNoFlyZones();
+
+    /**
+     * Returns the details of a what three words phrase in JSON. If the details can't be found, the method prints the
+     * error to screen and exits with status 1.
+     * @param words the what three words phrase.
+     */
+    public abstract String getW3WDetails(String words);
+
+    /**
+     * Returns the details of a what three words phrase in JSON without waiting for them.
+     * @param words the what three words phrase.
+     * @return A future of the details. The future completes exceptionally if the details can't be found.
+     */
+    public abstract CompletableFuture<String> getW3WDetailsAsync(String words);
+
+    /**
+     * Returns the orders of every day from `firstDate` to `lastDate` (inclusive).
+     * @param firstDate the first day to get the orders of.
+     * @param lastDate the last day to get the orders of.
+     * @return New `Order` objects of each day that has orders, in order of date.
+     */
+    public abstract Map<LocalDate, ArrayList<Order>> getOrders(LocalDate firstDate, LocalDate lastDate);
+
+    /**
+     * Returns the orders of a single day.
+     * @param date the day to get the orders of.
+     * @return New `Order` objects of the day.
+     */
+    public ArrayList<Order> getOrders(LocalDate date) {
+        return getOrders(date, date).getOrDefault(date, new ArrayList<>());
+    }
+
+    /**
+     * Returns the path of the details of a what three words phrase on the webserver.
+     */
+    static String getW3WDetailsPath(String words) {
+        return "/words/" + words.replace(".", "/") + "/details.json";
+    }
+
+    /**
+     * Makes the `Order` objects of the orders read from a source.
+     * @param orderRows the orders read from the source.
+     * @return The orders of each day that has orders, in order of date.
+     */
+    static Map<LocalDate, ArrayList<Order>> toOrders(Collection<OrderRow> orderRows) {
+        // Fetch the locations of all the delivery addresses at the same time before the orders need them
+        W3WCache.instance.prefetch(orderRows.stream().map(row -> row.deliverTo).collect(Collectors.toList()));
+
+        Map<LocalDate, ArrayList<Order>> orders = new TreeMap<>();
+        for (OrderRow row : orderRows) {
+            Order order = new Order(row.orderNo, java.sql.Date.valueOf(row.deliveryDate), row.customer,
+                    row.deliverTo, new ArrayList<>(row.itemNames));
+            orders.computeIfAbsent(row.deliveryDate, date -> new ArrayList<>()).add(order);
+        }
+        return orders;
+    }
+
+    /**
+     * The columns of an order read from a source, with the names of the items of the order.
+     */
+    static class OrderRow {
+        final String orderNo;
+        final LocalDate deliveryDate;
+        final String customer;
+        final String deliverTo;
+        final ArrayList<String> itemNames = new ArrayList<>();
+
+        OrderRow(String orderNo, LocalDate deliveryDate, String customer, String deliverTo) {
+            this.orderNo = orderNo;
+            this.deliveryDate = deliveryDate;
+            this.customer = customer;
+            this.deliverTo = deliverTo;
+        }
+    }
+}
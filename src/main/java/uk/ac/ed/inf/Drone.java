@@ -1,9 +1,10 @@
 package uk.ac.ed.inf;
 
-import uk.ac.ed.inf.AStar.Search;
+import uk.ac.ed.inf.AStar.VisibilityGraph;
 
 import java.util.ArrayList;
 import java.util.List;
+import java.util.function.Consumer;
 
 /**
  * A class that encapsulates the logic of a drone for its daily deliveries.
@@ -38,6 +39,16 @@ public class Drone {
      */
     private LongLat start;
 
+    /**
+     * Called with the moves of each completed order (and of the return to the start) as soon as they are final.
+     */
+    private final Consumer<List<Move>> movesListener;
+
+    /**
+     * The solver that picks the orders the drone delivers, and the order it delivers them in.
+     */
+    public static RouteSolver routeSolver = new OrienteeringSolver();
+
     /**
      * A special junk value that indicates the drone is hovering.
      */
@@ -61,8 +72,39 @@ public class Drone {
      * @author Vivek Raja s1864074
      */
     Drone(LongLat start, ArrayList<Order> orders) {
+        this(start, orders, moves -> {});
+    }
+
+    /**
+     * Instantiates a Drone object, finds the most optimal path, and completes the deliveries. The moves are given to
+     * `movesListener` while the drone is still finding the rest of the path, so they can be written out straight
+     * away.
+     * @param start The start position of the drone.
+     * @param orders The orders the drone has to deliver for the day.
+     * @param movesListener Called with the moves of each completed order, and of the return to the start, in the
+     *                      order they are made.
+     */
+    Drone(LongLat start, ArrayList<Order> orders, Consumer<List<Move>> movesListener) {
+        this(movesListener, start, routeSolver.solve(start, orders));
+    }
+
+    /**
+     * Returns a Drone that delivers the orders in the order given, without finding the optimal route first. Used
+     * when the route has already been found, such as for the drones of a `Fleet`.
+     * @param start The start position of the drone.
+     * @param route The orders the drone has to deliver, in the order to deliver them in.
+     * @param movesListener Called with the moves of each completed order, and of the return to the start, in the
+     *                      order they are made.
+     * @return The drone, after it has completed the deliveries.
+     */
+    static Drone flyRoute(LongLat start, List<Order> route, Consumer<List<Move>> movesListener) {
+        return new Drone(movesListener, start, route);
+    }
+
+    private Drone(Consumer<List<Move>> movesListener, LongLat start, List<Order> route) {
+        this.movesListener = movesListener;
         this.moves = new ArrayList<>();
-        this.orders = TSPSolver.solveForOrders(start, orders);
+        this.orders = route;
         this.currPos = start;
         this.start = start;
 
@@ -86,7 +128,7 @@ public class Drone {
         }
 
         // make local copies of drone state
-        ArrayList currMoves = new ArrayList(moves);
+        ArrayList<Move> currMoves = new ArrayList<>(moves);
         var currDronePos = currPos.copy();
 
         // add all stops to a list
@@ -101,9 +143,10 @@ public class Drone {
         for (LongLat stop : allStops) {
             int movesRemaining = getRemainingMoves(currMoves);
 
-            // if we're unable to make it back to the base after this stop, we won't deliver this order
-            var pathToBase = getPathTo(this.start, stop, movesRemaining, null);
-            if (pathToBase == null) {
+            // if we're unable to make it back to the base after this stop, we won't deliver this order. If the drone
+            // started at Appleton Tower or a shop, the path back is found by following its flow field, and the number
+            // of moves the path really takes is cached, as the cost of the field's square is only an estimate of it.
+            if (getMoveCountTo(this.start, stop) >= movesRemaining) {
                 System.out.println("Unable to complete order due to not enough moves back to base.");
                 return;
             }
@@ -135,6 +178,7 @@ public class Drone {
 
         // Update global drone position
         this.currPos = currDronePos;
+        movesListener.accept(currMoves.subList(this.moves.size(), currMoves.size()));
         this.moves = currMoves;
     }
 
@@ -146,6 +190,7 @@ public class Drone {
         List<Move> path = getPathTo(this.start, this.currPos, movesRemaining, null);
         if (path != null) {
             this.moves.addAll(path);
+            movesListener.accept(path);
         } else {
             System.out.println("Couldn't return to start as path couldn't be found.");
         }
@@ -153,8 +198,59 @@ public class Drone {
 
 
     /**
-     * Finds and returns the path to the destination using A* search. A path is found only if constraints of total
-     * moves are met.
+     * Returns the number of moves needed to get from `from` to close to `dest`. The number of moves of a leg
+     * already in the path cache is returned without searching for the path again.
+     *
+     * @param dest position to go to.
+     * @param from the position to start the path from.
+     * @return The number of moves of the path, or `Integer.MAX_VALUE` if no path can be found.
+     */
+    static int getMoveCountTo(LongLat dest, LongLat from) {
+        int moveCount = PathCache.instance.getMoveCount(from, dest);
+        if (moveCount >= 0) {
+            return moveCount;
+        }
+        List<Move> path = findPathTo(dest, from, MAX_MOVES, null);
+        if (path == null) {
+            return Integer.MAX_VALUE;
+        }
+        PathCache.instance.put(from, dest, path);
+        return path.size();
+    }
+
+    /**
+     * Returns the path to the destination, from the path cache if the leg has been flown before. A path is returned
+     * only if constraints of total moves are met.
+     *
+     * @param dest position to go to.
+     * @param from the position to start the path from.
+     * @param movesRemaining the number of moves remaining for the drone for the day.
+     * @param order the order to associate the moves with.
+     * @return A list of moves if a path is found, else null.
+     */
+    static List<Move> getPathTo(LongLat dest, LongLat from, int movesRemaining, Order order) {
+        List<Move> path = PathCache.instance.get(from, dest, order);
+        if (path == null) {
+            // Search for the path with all the moves of the day, so the path can be reused later in the day.
+            path = findPathTo(dest, from, MAX_MOVES, order);
+            if (path == null) {
+                return null;
+            }
+            PathCache.instance.put(from, dest, path);
+        }
+
+        if (path.size() < movesRemaining) {
+            return path;
+        } else {
+            System.out.println("Couldn't reach destination due to not enough moves.");
+            return null;
+        }
+    }
+
+    /**
+     * Finds and returns the path to the destination, by following its flow field if it is Appleton Tower or a shop,
+     * or else by going straight towards it and around the no-fly zones with the visibility graph. A path is found only
+     * if constraints of total moves are met.
      *
      * @param dest position to go to.
      * @param from the position to start the path from.
@@ -162,10 +258,34 @@ public class Drone {
      * @param order the order to associate the moves with.
      * @return A list of moves if a path is found, else null.
      */
-    private List<Move> getPathTo(LongLat dest, LongLat from, int movesRemaining, Order order) {
+    static List<Move> findPathTo(LongLat dest, LongLat from, int movesRemaining, Order order) {
+        FlowField flowField = FlowField.get(dest);
+        if (flowField != null) {
+            List<Move> path = flowField.findPath(from, movesRemaining - 1, order);
+            if (path != null) {
+                return path;
+            }
+        }
+
         ArrayList<Move> pathMoves = new ArrayList<>();
 
         while (movesRemaining > 0 && !from.closeTo(dest)) {
+            // Make the moves towards the destination that are all at the same angle and known to be valid at once,
+            // rather than checking each of them for no-fly zones. The drone can't go straight for much further than
+            // the destination, so the moves are only counted that far.
+            int angle = from.angleTo(dest);
+            int numMovesToDest = (int) Math.ceil(from.distanceTo(dest) / MOVE_LENGTH_IN_DEGREES) + 1;
+            int numValidMoves = Move.getNumValidMoves(from, angle, Math.min(movesRemaining, numMovesToDest));
+            if (numValidMoves > 0) {
+                do {
+                    Move nextMove = new Move(from, angle, order);
+                    from = nextMove.getDest();
+                    pathMoves.add(nextMove);
+                    movesRemaining--;
+                } while (--numValidMoves > 0 && !from.closeTo(dest) && from.angleTo(dest) == angle);
+                continue;
+            }
+
             Move nextMove = new Move(from, dest, order);
 
             if (nextMove.isValid()) {
@@ -173,16 +293,15 @@ public class Drone {
                 pathMoves.add(nextMove);
                 movesRemaining--;
             } else {
-                // The move collides with a No-Fly Zone so use A* search
-                Search astar = new Search(from, dest, order);
-                List<Move> aStarPath = astar.findPath(movesRemaining);
-
-                if (aStarPath != null) {
-                    from = aStarPath.get(aStarPath.size() - 1).getDest();
-                    pathMoves.addAll(aStarPath);
-                    movesRemaining -= aStarPath.size();
+                // The move collides with a No-Fly Zone so find a path around it with the visibility graph
+                List<Move> detour = VisibilityGraph.instance.findPath(from, dest, movesRemaining, order);
+
+                if (detour != null) {
+                    from = detour.get(detour.size() - 1).getDest();
+                    pathMoves.addAll(detour);
+                    movesRemaining -= detour.size();
                 } else {
-                    System.out.println("Couldn't find A* path");
+                    System.out.println("Couldn't find a path around the no-fly zones");
                     return null;
                 }
             }
@@ -1,5 +1,5 @@
 package uk.ac.ed.inf;
-import uk.ac.ed.inf.AStar.Search;
+import uk.ac.ed.inf.AStar.VisibilityGraph;
 
 import java.util.ArrayList;
 import java.util.Arrays;
@@ -157,8 +157,7 @@ public class Drone2 {
             return new ArrayList<>();
         } else {
             // find path
-            Search astar = new Search(from, dest, order);
-            List<Move> path = astar.findPath(movesRemaining);
+            List<Move> path = VisibilityGraph.instance.findPath(from, dest, movesRemaining, order);
 
             if (path != null) {
                 return path;
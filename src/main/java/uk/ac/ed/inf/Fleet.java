@@ -0,0 +1,165 @@
+package uk.ac.ed.inf;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.time.LocalDate;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
+
+/**
+ * A class that plans the daily deliveries of a fleet of drones, which can start from several depots.
+ * The orders are split between the drones by `TSPSolver.solveForFleet`, and then the path of each drone is found in
+ * parallel on the common `ForkJoinPool`. Each drone has its own `Drone.MAX_MOVES` moves for the day.
+ * The drones are numbered from 0, and drone `i` starts from depot `i % depots.size()`.
+ * @author Vivek Raja s1864074
+ */
+public class Fleet {
+
+    /**
+     * The format of the date in the name of the GeoJSON file.
+     */
+    private static final DateTimeFormatter FILE_NAME_DATE_FORMAT = DateTimeFormatter.ofPattern("dd-MM-yyyy");
+
+    /**
+     * The drones of the fleet, in order of drone id.
+     */
+    private final List<Drone> drones = new ArrayList<>();
+
+    /**
+     * All the orders delivered today by the fleet, in order of drone id and then of delivery.
+     */
+    private final List<Order> ordersDelivered = new ArrayList<>();
+
+    /**
+     * Instantiates a Fleet object, splits the orders between the drones, and completes the deliveries.
+     * @param depots The positions the drones start from.
+     * @param numDrones The number of drones in the fleet.
+     * @param orders The orders the fleet has to deliver for the day.
+     */
+    Fleet(List<LongLat> depots, int numDrones, List<Order> orders) {
+        List<List<Order>> routes = TSPSolver.solveForFleet(depots, numDrones, orders);
+
+        List<Callable<Drone>> flights = new ArrayList<>();
+        for (int droneId = 0; droneId < numDrones; droneId++) {
+            LongLat depot = depots.get(droneId % depots.size());
+            List<Order> route = routes.get(droneId);
+            flights.add(() -> Drone.flyRoute(depot, route, moves -> {}));
+        }
+
+        for (Future<Drone> flight : ForkJoinPool.commonPool().invokeAll(flights)) {
+            try {
+                Drone drone = flight.get();
+                drones.add(drone);
+                ordersDelivered.addAll(drone.getOrdersDelivered());
+            } catch (InterruptedException | ExecutionException e) {
+                e.printStackTrace();
+                System.exit(1);
+            }
+        }
+    }
+
+    /**
+     * @return The drones of the fleet, in order of drone id.
+     */
+    public List<Drone> getDrones() {
+        return drones;
+    }
+
+    /**
+     * @return The moves each drone has made for the day, in order of drone id.
+     */
+    public List<ArrayList<Move>> getFlightPaths() {
+        List<ArrayList<Move>> flightPaths = new ArrayList<>();
+        for (Drone drone : drones) {
+            flightPaths.add(drone.getMoves());
+        }
+        return flightPaths;
+    }
+
+    /**
+     * @return The orders that have been successfully delivered by any drone.
+     */
+    public List<Order> getOrdersDelivered() {
+        return ordersDelivered;
+    }
+
+    /**
+     * Writes the flight paths of the drones to a GeoJSON map, as a line for each drone that moved, with a `droneId`
+     * property.
+     * @param geoJsonWriter the writer of the map.
+     */
+    void writeFlightPaths(GeoJsonWriter geoJsonWriter) {
+        for (int droneId = 0; droneId < drones.size(); droneId++) {
+            geoJsonWriter.startFlightPath(droneId);
+            geoJsonWriter.writeMoves(drones.get(droneId).getMoves());
+        }
+        geoJsonWriter.endFlightPath();
+    }
+
+    /**
+     * Plans the deliveries of a day with a fleet of drones. The flight paths are written to the flightpath table, with
+     * a droneId column, and to a GeoJSON file named `drones-DD-MM-YYYY.geojson`. The number of rows sent to the
+     * database at a time can be set with the system properties of `DBClient` (e.g. `-DflightPathBatchSize=1000`).
+     * @param args the date (as YYYY-MM-DD), the number of drones, either the webserver and database ports or `--local`
+     *             to read the data from `website/` and `database/orders.tsv` instead (in which case the database isn't
+     *             written to), and optionally the depots as `longitude,latitude` pairs. The drones start from Appleton
+     *             Tower if no depots are given.
+     */
+    public static void main(String[] args) {
+        boolean isLocal = args.length >= 3 && args[2].equals("--local");
+        if (args.length < (isLocal ? 3 : 4)) {
+            System.out.println("Not enough arguments. Please specify the date (YYYY-MM-DD) to process, the number of " +
+                    "drones, the webserver and database ports (or --local), and optionally the depots as " +
+                    "longitude,latitude pairs.");
+            System.exit(1);
+        }
+
+        LocalDate date = LocalDate.parse(args[0]);
+        int numDrones = Integer.parseInt(args[1]);
+        List<LongLat> depots = new ArrayList<>();
+        for (int i = isLocal ? 3 : 4; i < args.length; i++) {
+            String[] depot = args[i].split(",");
+            depots.add(new LongLat(Double.parseDouble(depot[0]), Double.parseDouble(depot[1])));
+        }
+        if (depots.isEmpty()) {
+            depots.add(new LongLat(LongLat.APPLETON_TOWER_LONGITUDE, LongLat.APPLETON_TOWER_LATITUDE));
+        }
+
+        if (isLocal) {
+            DataSource.instance = new LocalDataSource(Path.of("website"), Path.of("database/orders.tsv"));
+        } else {
+            int databasePort = Integer.parseInt(args[3]);
+            DataSource.instance = new ServerDataSource("localhost", Integer.parseInt(args[2]), "localhost",
+                    databasePort);
+            DBClient.instance.setServer("localhost", databasePort);
+        }
+
+        ArrayList<Order> orders = DataSource.instance.getOrders(date);
+        Fleet fleet = new Fleet(depots, numDrones, orders);
+        if (!isLocal) {
+            DBClient.instance.insertFleetResults(fleet.getFlightPaths(), fleet.getOrdersDelivered());
+        }
+
+        if (fleet.getDrones().stream().anyMatch(drone -> !drone.getMoves().isEmpty())) {
+            // The drones find their paths in parallel, so the map is written once they have all finished
+            Path file = Path.of("drones-" + date.format(FILE_NAME_DATE_FORMAT) + ".geojson");
+            try (GeoJsonWriter geoJsonWriter = new GeoJsonWriter(file)) {
+                fleet.writeFlightPaths(geoJsonWriter);
+            } catch (IOException e) {
+                System.err.println("There was an error in writing the GeoJSON file to the given filename: " + file);
+                System.exit(1);
+            }
+        }
+        for (int droneId = 0; droneId < numDrones; droneId++) {
+            Drone drone = fleet.getDrones().get(droneId);
+            System.out.println("Drone " + droneId + ": " + drone.getOrdersDelivered().size() + " orders delivered, "
+                    + drone.getMoves().size() + " moves");
+        }
+        System.out.println(fleet.getOrdersDelivered().size() + "/" + orders.size() + " orders delivered");
+    }
+}
@@ -0,0 +1,270 @@
+package uk.ac.ed.inf;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * The number of moves to a fixed destination, and the angle of the next move towards it, from every square of the move
+ * lattice (see `LongLat.LATTICE_RESOLUTION_IN_DEGREES`) in the confinement area. The field is built once with a
+ * breadth-first search backwards from the squares close to the destination, so a path to the destination is found by
+ * following the angles of the squares the drone is in, rather than by searching.
+ * A move `L` long at a given angle always goes the same number of squares across and up the lattice, so the squares
+ * that lead to a square are found by going back by those numbers. The drone is rarely at the centre of a square, so a
+ * move is only used in the field if it is valid from anywhere in its square, i.e. if it keeps half the diagonal of a
+ * square away from the no-fly zones and the edges of the confinement area. The moves are still checked as the field is
+ * followed.
+ * Fields are only built for the destinations that don't change during a day, i.e. Appleton Tower and the shops.
+ * @author Vivek Raja s1864074
+ */
+public class FlowField {
+
+    /**
+     * The cost of a square from which the destination can't be reached.
+     */
+    private static final short UNREACHABLE = Short.MAX_VALUE;
+
+    /**
+     * The number of angles a drone can move at.
+     */
+    private static final int NUM_ANGLES = 36;
+
+    /**
+     * The length (in degrees) of the sides of a square of the lattice.
+     */
+    private static final double SQUARE_SIZE_IN_DEGREES = LongLat.LATTICE_RESOLUTION_IN_DEGREES;
+
+    /**
+     * How far the moves of the field keep from the no-fly zones and the edges of the confinement area, which is half
+     * the diagonal of a square, and a little more for rounding.
+     */
+    private static final double MARGIN_IN_DEGREES = SQUARE_SIZE_IN_DEGREES * (Math.sqrt(2) / 2 + 0.01);
+
+    /**
+     * The number of columns (West to East) of the lattice.
+     */
+    private static final int NUM_COLUMNS = (int) Math.round((LongLat.CONFINEMENT_AREA_BOUND_EAST_LONGITUDE
+            - LongLat.CONFINEMENT_AREA_BOUND_WEST_LONGITUDE) / SQUARE_SIZE_IN_DEGREES) + 1;
+
+    /**
+     * The number of rows (South to North) of the lattice.
+     */
+    private static final int NUM_ROWS = (int) Math.round((LongLat.CONFINEMENT_AREA_BOUND_NORTH_LATITUDE
+            - LongLat.CONFINEMENT_AREA_BOUND_SOUTH_LATITUDE) / SQUARE_SIZE_IN_DEGREES) + 1;
+
+    /**
+     * The number of columns and rows a move at each angle (in tens of degrees) goes across and up the lattice.
+     */
+    private static final int[] COLUMN_OFFSETS = new int[NUM_ANGLES];
+    private static final int[] ROW_OFFSETS = new int[NUM_ANGLES];
+
+    static {
+        for (int angle = 0; angle < NUM_ANGLES; angle++) {
+            double angleInRadians = Math.toRadians(angle * 10);
+            COLUMN_OFFSETS[angle] = (int) Math.round(
+                    Drone.MOVE_LENGTH_IN_DEGREES * Math.cos(angleInRadians) / SQUARE_SIZE_IN_DEGREES);
+            ROW_OFFSETS[angle] = (int) Math.round(
+                    Drone.MOVE_LENGTH_IN_DEGREES * Math.sin(angleInRadians) / SQUARE_SIZE_IN_DEGREES);
+        }
+    }
+
+    /**
+     * The position of Appleton Tower, which always has a field.
+     */
+    private static final LongLat APPLETON_TOWER = new LongLat(LongLat.APPLETON_TOWER_LONGITUDE,
+            LongLat.APPLETON_TOWER_LATITUDE);
+
+    /**
+     * The fields built so far, by destination.
+     */
+    private static final Map<LongLat, FlowField> FIELDS = new ConcurrentHashMap<>();
+
+    /**
+     * The destination of the field.
+     */
+    private final LongLat dest;
+
+    /**
+     * The number of moves from each square to the destination, or `UNREACHABLE`, stored one row after another from
+     * the South West corner of the confinement area.
+     */
+    private final short[] costs;
+
+    /**
+     * The angle (in tens of degrees) of the first move from each square towards the destination.
+     */
+    private final byte[] angles;
+
+    /**
+     * Builds the field of a destination.
+     * @param dest the destination.
+     */
+    FlowField(LongLat dest) {
+        this.dest = dest;
+        int numSquares = NUM_COLUMNS * NUM_ROWS;
+        this.costs = new short[numSquares];
+        this.angles = new byte[numSquares];
+        Arrays.fill(costs, UNREACHABLE);
+
+        // The destination is reached from anywhere in the squares whose centres are closer to it than this
+        double reachedDistance = Drone.MOVE_LENGTH_IN_DEGREES - SQUARE_SIZE_IN_DEGREES;
+        int[] queue = new int[numSquares];
+        int queueEnd = 0;
+        for (int square = 0; square < numSquares; square++) {
+            if (Math.hypot(getLongitude(square) - dest.longitude, getLatitude(square) - dest.latitude)
+                    < reachedDistance) {
+                costs[square] = 0;
+                queue[queueEnd++] = square;
+            }
+        }
+
+        for (int queueStart = 0; queueStart < queueEnd; queueStart++) {
+            int square = queue[queueStart];
+            int column = square % NUM_COLUMNS;
+            int row = square / NUM_COLUMNS;
+            short previousCost = (short) (costs[square] + 1);
+            for (int angle = 0; angle < NUM_ANGLES; angle++) {
+                int previousColumn = column - COLUMN_OFFSETS[angle];
+                int previousRow = row - ROW_OFFSETS[angle];
+                if (previousColumn < 0 || previousColumn >= NUM_COLUMNS || previousRow < 0 || previousRow >= NUM_ROWS) {
+                    continue;
+                }
+                int previous = previousRow * NUM_COLUMNS + previousColumn;
+                boolean isNew = costs[previous] == UNREACHABLE;
+                // Of the moves that are as short, prefer the one that goes most directly towards the destination
+                if ((isNew || (costs[previous] == previousCost && isMoreDirect(previous, angle)))
+                        && isValidMove(previous, angle)) {
+                    costs[previous] = previousCost;
+                    angles[previous] = (byte) angle;
+                    if (isNew) {
+                        queue[queueEnd++] = previous;
+                    }
+                }
+            }
+        }
+    }
+
+    /**
+     * Returns the field of a destination, which is built the first time it is needed, if the destination is Appleton
+     * Tower or a shop.
+     * @param dest the destination.
+     * @return The field, or null if the destination isn't a fixed destination.
+     */
+    public static FlowField get(LongLat dest) {
+        FlowField field = FIELDS.get(dest);
+        if (field != null) {
+            return field;
+        }
+        if (!dest.equals(APPLETON_TOWER) && !Menus.instance.getShopLocations().contains(dest)) {
+            return null;
+        }
+        // The field is built outside the map, so that building it doesn't block the other fields. If two threads
+        // build the same field at the same time, they both use the one that was added first.
+        field = new FlowField(dest);
+        FlowField addedField = FIELDS.putIfAbsent(dest, field);
+        return addedField != null ? addedField : field;
+    }
+
+    /**
+     * Returns the number of moves to the destination from the square a position is in. The number of moves made when
+     * following the field from the position itself can be slightly different.
+     * @return The number of moves, or `Integer.MAX_VALUE` if the destination can't be reached from the position.
+     */
+    public int getCost(LongLat from) {
+        int square = getSquare(from.longitude, from.latitude);
+        return square < 0 || costs[square] == UNREACHABLE ? Integer.MAX_VALUE : costs[square];
+    }
+
+    /**
+     * Returns the angle of the next move towards the destination from the square a position is in.
+     * @return The angle, or -1 if the destination can't be reached from the position.
+     */
+    public int getAngle(LongLat from) {
+        int square = getSquare(from.longitude, from.latitude);
+        return square < 0 || costs[square] == UNREACHABLE ? -1 : angles[square] * 10;
+    }
+
+    /**
+     * Finds the path to the destination by following the angles of the field, checking each move as it is made.
+     * @param from the position to start the path from.
+     * @param maxMoves the maximum number of moves the path can be made of.
+     * @param order the order to associate the moves with.
+     * @return The moves of the path, or null if the field can't be followed from `from` (for example because a move
+     * from near the edge of a square would cross a no-fly zone), or the path would be more than `maxMoves` long.
+     */
+    public List<Move> findPath(LongLat from, int maxMoves, Order order) {
+        int cost = getCost(from);
+        if (cost == Integer.MAX_VALUE) {
+            return null;
+        }
+        // Following the field from the edge of a square can take a few more moves than from its centre, but a path
+        // much longer than that is going round in circles
+        int movesAllowed = Math.min(maxMoves, cost + cost / 10 + 10);
+
+        ArrayList<Move> path = new ArrayList<>();
+        while (!from.closeTo(dest)) {
+            int angle = getAngle(from);
+            if (angle < 0 || path.size() >= movesAllowed) {
+                return null;
+            }
+            Move move = new Move(from, angle, order);
+            if (!move.isValid()) {
+                return null;
+            }
+            path.add(move);
+            from = move.getDest();
+        }
+        return path;
+    }
+
+    /**
+     * Checks whether a move at `angle` (in tens of degrees) is valid from anywhere in `square`.
+     */
+    private static boolean isValidMove(int square, int angle) {
+        double x = getLongitude(square), y = getLatitude(square);
+        double angleInRadians = Math.toRadians(angle * 10);
+        double nextX = x + Drone.MOVE_LENGTH_IN_DEGREES * Math.cos(angleInRadians);
+        double nextY = y + Drone.MOVE_LENGTH_IN_DEGREES * Math.sin(angleInRadians);
+        return LongLat.isConfined(nextX - MARGIN_IN_DEGREES, nextY - MARGIN_IN_DEGREES)
+                && LongLat.isConfined(nextX + MARGIN_IN_DEGREES, nextY + MARGIN_IN_DEGREES)
+                && NoFlyZones.INDEX.isClear(x, y, nextX, nextY, MARGIN_IN_DEGREES);
+    }
+
+    /**
+     * Checks whether a move at `angle` (in tens of degrees) from `square` goes more directly towards the destination
+     * than the move already chosen for it.
+     */
+    private boolean isMoreDirect(int square, int angle) {
+        int angleToDest = LongLat.angleBetween(getLongitude(square), getLatitude(square), dest.longitude,
+                dest.latitude);
+        return getAngleDifference(angle * 10, angleToDest) < getAngleDifference(angles[square] * 10, angleToDest);
+    }
+
+    private static int getAngleDifference(int a, int b) {
+        int difference = Math.abs(a - b) % 360;
+        return Math.min(difference, 360 - difference);
+    }
+
+    /**
+     * Returns the square whose centre is nearest to a position, or -1 if the position is outside the confinement area.
+     */
+    private static int getSquare(double longitude, double latitude) {
+        if (!LongLat.isConfined(longitude, latitude)) {
+            return -1;
+        }
+        int column = (int) Math.round((longitude - LongLat.CONFINEMENT_AREA_BOUND_WEST_LONGITUDE)
+                / SQUARE_SIZE_IN_DEGREES);
+        int row = (int) Math.round((latitude - LongLat.CONFINEMENT_AREA_BOUND_SOUTH_LATITUDE) / SQUARE_SIZE_IN_DEGREES);
+        return Math.min(row, NUM_ROWS - 1) * NUM_COLUMNS + Math.min(column, NUM_COLUMNS - 1);
+    }
+
+    private static double getLongitude(int square) {
+        return LongLat.CONFINEMENT_AREA_BOUND_WEST_LONGITUDE + (square % NUM_COLUMNS) * SQUARE_SIZE_IN_DEGREES;
+    }
+
+    private static double getLatitude(int square) {
+        return LongLat.CONFINEMENT_AREA_BOUND_SOUTH_LATITUDE + (square / NUM_COLUMNS) * SQUARE_SIZE_IN_DEGREES;
+    }
+}
@@ -0,0 +1,188 @@
+package uk.ac.ed.inf;
+
+import java.io.BufferedWriter;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Writes a GeoJSON map of flight paths as the moves are made, without building the map in memory first. Each flight
+ * path is written as a line, and each hovering move as a point at the end of the map, followed by the no-fly zones,
+ * landmarks and other static layers of `GeoJsonMap` (which are only turned into JSON once).
+ * The coordinates are rounded to 7 decimal places, like the GeoJSON library does.
+ * @author Vivek Raja s1864074
+ */
+public class GeoJsonWriter implements Closeable {
+
+    /**
+     * The precision the coordinates are rounded to.
+     */
+    private static final double COORDINATE_PRECISION = 1e7;
+
+    private final Writer writer;
+
+    /**
+     * The positions the drones hovered at, which are written after the flight paths.
+     */
+    private final List<LongLat> stops = new ArrayList<>();
+
+    /**
+     * Whether a feature has been written yet, so that the next feature knows whether it needs a comma before it.
+     */
+    private boolean hasFeatures = false;
+
+    /**
+     * Whether a flight path has been started but not ended yet.
+     */
+    private boolean isInFlightPath = false;
+
+    /**
+     * The id of the drone of the current flight path, or null if the flight path has no drone id.
+     */
+    private Integer droneId;
+
+    /**
+     * Whether the line of the current flight path has been started, which is only done when its first move is
+     * written, so that a drone that doesn't move has no line.
+     */
+    private boolean hasLine = false;
+
+    /**
+     * Whether the end of the map has been written.
+     */
+    private boolean isFinished = false;
+
+    /**
+     * Instantiates a writer that writes the map to a file.
+     * @param file the file to write the map to. It is replaced if it exists.
+     * @throws IOException if the file can't be opened.
+     */
+    public GeoJsonWriter(Path file) throws IOException {
+        this(Files.newBufferedWriter(file, StandardCharsets.UTF_8));
+    }
+
+    /**
+     * Instantiates a writer that writes the map to `writer`.
+     * @param writer the writer to write the map to. It is buffered if it isn't already.
+     */
+    public GeoJsonWriter(Writer writer) {
+        this.writer = writer instanceof BufferedWriter ? writer : new BufferedWriter(writer);
+        write("{\"type\":\"FeatureCollection\",\"features\":[");
+    }
+
+    /**
+     * Starts the flight path of a drone of a fleet. The line of the flight path has a `droneId` property.
+     * @param droneId the id of the drone.
+     */
+    public void startFlightPath(int droneId) {
+        endFlightPath();
+        this.isInFlightPath = true;
+        this.droneId = droneId;
+    }
+
+    /**
+     * Writes the moves to the current flight path, which is started if there isn't one.
+     * @param moves the next moves of the drone, in order.
+     */
+    public void writeMoves(List<Move> moves) {
+        if (!isInFlightPath) {
+            isInFlightPath = true;
+            droneId = null;
+        }
+        for (Move move : moves) {
+            if (!hasLine) {
+                startFeature();
+                write("{\"type\":\"Feature\",\"geometry\":{\"type\":\"LineString\",\"coordinates\":[");
+                writeCoordinates(move.getOrig());
+                hasLine = true;
+            }
+            if (move.getAngle() == Drone.SPECIAL_HOVERING_ANGLE) {
+                stops.add(move.getDest());
+            } else {
+                write(",");
+                writeCoordinates(move.getDest());
+            }
+        }
+    }
+
+    /**
+     * Ends the current flight path, if there is one.
+     */
+    public void endFlightPath() {
+        if (hasLine) {
+            write("]},\"properties\":{" + (droneId == null ? "" : "\"droneId\":" + droneId) + "}}");
+        }
+        isInFlightPath = false;
+        hasLine = false;
+    }
+
+    /**
+     * Ends the current flight path and writes the stops and static layers and the end of the map. The writer is
+     * flushed but not closed, so that it can be used to write to standard output.
+     */
+    public void finish() {
+        if (isFinished) {
+            return;
+        }
+        endFlightPath();
+        for (LongLat stop : stops) {
+            startFeature();
+            write("{\"type\":\"Feature\",\"geometry\":{\"type\":\"Point\",\"coordinates\":");
+            writeCoordinates(stop);
+            write("},\"properties\":{}}");
+        }
+        startFeature();
+        write(GeoJsonMap.getStaticFeaturesJson());
+        write("]}");
+        try {
+            writer.flush();
+        } catch (IOException e) {
+            System.err.println("There was an error in writing the GeoJSON map. Error message: " + e.getMessage());
+            System.exit(1);
+        }
+        isFinished = true;
+    }
+
+    /**
+     * Finishes the map and closes the writer.
+     */
+    @Override
+    public void close() {
+        finish();
+        try {
+            writer.close();
+        } catch (IOException e) {
+            System.err.println("There was an error in writing the GeoJSON map. Error message: " + e.getMessage());
+            System.exit(1);
+        }
+    }
+
+    private void startFeature() {
+        if (hasFeatures) {
+            write(",");
+        }
+        hasFeatures = true;
+    }
+
+    private void writeCoordinates(LongLat position) {
+        write("[" + round(position.longitude) + "," + round(position.latitude) + "]");
+    }
+
+    private static double round(double coordinate) {
+        return Math.round(coordinate * COORDINATE_PRECISION) / COORDINATE_PRECISION;
+    }
+
+    private void write(String json) {
+        try {
+            writer.write(json);
+        } catch (IOException e) {
+            System.err.println("There was an error in writing the GeoJSON map. Error message: " + e.getMessage());
+            System.exit(1);
+        }
+    }
+}
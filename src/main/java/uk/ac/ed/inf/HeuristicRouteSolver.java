@@ -0,0 +1,302 @@
+package uk.ac.ed.inf;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * A route solver that builds the route with a nearest neighbour heuristic and improves it with 2-opt and or-opt
+ * moves, without building a jsprit problem. The orders are prioritised in the same way as `TSPSolver`.
+ * The drone delivers each order before it picks up the next one, so the route is a tour of the orders, where the cost
+ * of going from order `a` to order `b` is the number of moves from the delivery point of `a` to the first shop of `b`,
+ * plus the moves of delivering `b` (flying from its first shop to its other shop and its delivery point, and
+ * hovering at each of them). The tour starts and ends at the start position of the drone, and its cost has to be less
+ * than `Drone.MAX_MOVES`.
+ * @author Vivek Raja s1864074
+ */
+public class HeuristicRouteSolver implements RouteSolver {
+
+    /**
+     * The cost of a leg that the drone can't fly, which is more than a drone can fly in a day.
+     */
+    private static final int UNREACHABLE_COST = 2 * Drone.MAX_MOVES;
+
+    /**
+     * The longest segment of the route that or-opt moves to another position.
+     */
+    private static final int MAX_OR_OPT_SEGMENT_LENGTH = 3;
+
+    /**
+     * Finds the order to deliver the orders in.
+     * The route is built by repeatedly going to the order with the lowest cost relative to its weight (11 minus its
+     * priority, so the most costly orders have a weight of 10), as long as the drone can still get back to the start.
+     * The route is then shortened with 2-opt and or-opt moves, and the orders left out are inserted where they cost the
+     * fewest moves, if they fit in the moves saved.
+     * @param start the start position of the drone, which it returns to at the end of the day.
+     * @param orders the orders the drone has to try to deliver.
+     * @return The orders to deliver, each of them once, in the order to deliver them in.
+     */
+    @Override
+    public List<Order> solve(LongLat start, List<Order> orders) {
+        int numOrders = orders.size();
+        int[][] costs = getCosts(start, orders);
+        int[] priorities = TSPSolver.getPriorities(orders);
+
+        // The tour is the start, the orders in the route and then the start again, and the start is `numOrders`
+        int[] tour = new int[numOrders + 2];
+        boolean[] isRouted = new boolean[numOrders];
+        tour[0] = numOrders;
+        int routeLength = 0;
+        int totalCost = 0;
+        int current = numOrders;
+        while (true) {
+            int next = -1;
+            double nextScore = Double.MAX_VALUE;
+            for (int order = 0; order < numOrders; order++) {
+                if (isRouted[order] || totalCost + costs[current][order] + costs[order][numOrders] >= Drone.MAX_MOVES) {
+                    continue;
+                }
+                double score = (double) costs[current][order] / (11 - priorities[order]);
+                if (score < nextScore) {
+                    next = order;
+                    nextScore = score;
+                }
+            }
+            if (next == -1) {
+                break;
+            }
+            tour[++routeLength] = next;
+            isRouted[next] = true;
+            totalCost += costs[current][next];
+            current = next;
+        }
+        tour[routeLength + 1] = numOrders;
+
+        improve(tour, routeLength, costs);
+
+        // Fill the moves saved with the orders that were left out, the highest priority first
+        boolean isInserted = false;
+        for (int priority = 1; priority <= 10; priority++) {
+            for (int order = 0; order < numOrders; order++) {
+                if (!isRouted[order] && priorities[order] == priority
+                        && insertCheapest(tour, routeLength, order, costs)) {
+                    isRouted[order] = true;
+                    routeLength++;
+                    isInserted = true;
+                }
+            }
+        }
+        if (isInserted) {
+            improve(tour, routeLength, costs);
+        }
+
+        List<Order> route = new ArrayList<>(routeLength);
+        for (int i = 1; i <= routeLength; i++) {
+            route.add(orders.get(tour[i]));
+        }
+        return route;
+    }
+
+    /**
+     * Returns the costs of going from each order to each other order (see the class documentation). Index
+     * `orders.size()` is the start position of the drone.
+     * @param start the start position of the drone.
+     * @param orders the orders to deliver.
+     * @return The costs, where `costs[a][b]` is the number of moves of going from `a` to `b` and delivering `b`.
+     */
+    static int[][] getCosts(LongLat start, List<Order> orders) {
+        int numOrders = orders.size();
+        Map<LongLat, Integer> positionIndices = TSPSolver.getPositionIndices(List.of(start), orders);
+        int[][] moveCounts = TSPSolver.getMoveCounts(new ArrayList<>(positionIndices.keySet()));
+
+        // The positions each order is entered and left at, and the cost of delivering it once it's entered
+        int[] entries = new int[numOrders + 1];
+        int[] exits = new int[numOrders + 1];
+        int[] deliveryCosts = new int[numOrders + 1];
+        for (int order = 0; order < numOrders; order++) {
+            List<Shop> shops = orders.get(order).getShops();
+            int previous = positionIndices.get(shops.get(0).locationInLongLat);
+            entries[order] = previous;
+            deliveryCosts[order] = shops.size() + 1;
+            for (int stop = 1; stop <= shops.size(); stop++) {
+                int next = stop < shops.size() ? positionIndices.get(shops.get(stop).locationInLongLat)
+                        : positionIndices.get(orders.get(order).getDeliverToInLongLat());
+                deliveryCosts[order] += getMoveCount(moveCounts, previous, next);
+                previous = next;
+            }
+            exits[order] = previous;
+        }
+        entries[numOrders] = positionIndices.get(start);
+        exits[numOrders] = entries[numOrders];
+
+        int[][] costs = new int[numOrders + 1][numOrders + 1];
+        for (int from = 0; from <= numOrders; from++) {
+            for (int to = 0; to <= numOrders; to++) {
+                costs[from][to] = getMoveCount(moveCounts, exits[from], entries[to]) + deliveryCosts[to];
+            }
+        }
+        return costs;
+    }
+
+    private static int getMoveCount(int[][] moveCounts, int from, int to) {
+        return moveCounts[from][to] == Integer.MAX_VALUE ? UNREACHABLE_COST : moveCounts[from][to];
+    }
+
+    /**
+     * Shortens the tour with 2-opt and or-opt moves until neither of them finds a shorter tour.
+     * @param tour the tour, which has `routeLength` orders between the start at each end.
+     * @param routeLength the number of orders in the tour.
+     * @param costs the costs of going between the orders.
+     */
+    static void improve(int[] tour, int routeLength, int[][] costs) {
+        int[] forwardCosts = new int[routeLength + 2];
+        int[] backwardCosts = new int[routeLength + 2];
+        boolean isImproved = true;
+        while (isImproved) {
+            isImproved = twoOpt(tour, routeLength, costs, forwardCosts, backwardCosts)
+                    || orOpt(tour, routeLength, costs);
+        }
+    }
+
+    /**
+     * Makes the first 2-opt move that shortens the tour, which reverses the orders from `i` to `j`. The costs aren't
+     * symmetric, so the cost of the reversed orders is found from the cumulative costs of the tour backwards.
+     * @return true if a move was made.
+     */
+    private static boolean twoOpt(int[] tour, int routeLength, int[][] costs, int[] forwardCosts,
+                                  int[] backwardCosts) {
+        // forwardCosts[k] is the cost of the tour up to position k, and backwardCosts[k] is the same in reverse
+        for (int k = 1; k <= routeLength + 1; k++) {
+            forwardCosts[k] = forwardCosts[k - 1] + costs[tour[k - 1]][tour[k]];
+            backwardCosts[k] = backwardCosts[k - 1] + costs[tour[k]][tour[k - 1]];
+        }
+
+        for (int i = 1; i < routeLength; i++) {
+            for (int j = i + 1; j <= routeLength; j++) {
+                int before = tour[i - 1];
+                int after = tour[j + 1];
+                int oldCost = costs[before][tour[i]] + forwardCosts[j] - forwardCosts[i] + costs[tour[j]][after];
+                int newCost = costs[before][tour[j]] + backwardCosts[j] - backwardCosts[i] + costs[tour[i]][after];
+                if (newCost < oldCost) {
+                    for (int left = i, right = j; left < right; left++, right--) {
+                        int order = tour[left];
+                        tour[left] = tour[right];
+                        tour[right] = order;
+                    }
+                    return true;
+                }
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Makes the first or-opt move that shortens the tour, which moves up to `MAX_OR_OPT_SEGMENT_LENGTH` consecutive
+     * orders to another position in the tour.
+     * @return true if a move was made.
+     */
+    private static boolean orOpt(int[] tour, int routeLength, int[][] costs) {
+        for (int length = 1; length <= MAX_OR_OPT_SEGMENT_LENGTH; length++) {
+            for (int i = 1; i + length - 1 <= routeLength; i++) {
+                int first = tour[i];
+                int last = tour[i + length - 1];
+                int before = tour[i - 1];
+                int after = tour[i + length];
+                int removalSaving = costs[before][first] + costs[last][after] - costs[before][after];
+
+                // Try moving the segment between positions k and k + 1
+                for (int k = 0; k <= routeLength; k++) {
+                    if (k >= i - 1 && k <= i + length - 1) {
+                        continue;
+                    }
+                    int insertionCost = costs[tour[k]][first] + costs[last][tour[k + 1]] - costs[tour[k]][tour[k + 1]];
+                    if (insertionCost < removalSaving) {
+                        moveSegment(tour, i, length, k);
+                        return true;
+                    }
+                }
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Moves the `length` orders from position `i` to between positions `k` and `k + 1`.
+     */
+    private static void moveSegment(int[] tour, int i, int length, int k) {
+        int[] segment = new int[length];
+        System.arraycopy(tour, i, segment, 0, length);
+        if (k < i) {
+            System.arraycopy(tour, k + 1, tour, k + 1 + length, i - k - 1);
+            System.arraycopy(segment, 0, tour, k + 1, length);
+        } else {
+            System.arraycopy(tour, i + length, tour, i, k - i - length + 1);
+            System.arraycopy(segment, 0, tour, k - length + 1, length);
+        }
+    }
+
+    /**
+     * Inserts the order where it adds the fewest moves to the tour, if the tour then still has less than
+     * `Drone.MAX_MOVES` moves.
+     * @return true if the order was inserted.
+     */
+    private static boolean insertCheapest(int[] tour, int routeLength, int order, int[][] costs) {
+        int position = getCheapestPosition(tour, routeLength, order, costs);
+        int extraCost = getInsertionCost(tour, position, order, costs);
+        if (getTourCost(tour, routeLength, costs) + extraCost >= Drone.MAX_MOVES) {
+            return false;
+        }
+        insert(tour, routeLength, position, order);
+        return true;
+    }
+
+    /**
+     * Returns the cost of the tour, including going back to the start.
+     */
+    static int getTourCost(int[] tour, int routeLength, int[][] costs) {
+        int totalCost = 0;
+        for (int k = 0; k <= routeLength; k++) {
+            totalCost += costs[tour[k]][tour[k + 1]];
+        }
+        return totalCost;
+    }
+
+    /**
+     * Returns the position `k` such that inserting the order between positions `k` and `k + 1` adds the fewest moves
+     * to the tour.
+     */
+    static int getCheapestPosition(int[] tour, int routeLength, int order, int[][] costs) {
+        int bestPosition = 0;
+        int bestExtraCost = Integer.MAX_VALUE;
+        for (int k = 0; k <= routeLength; k++) {
+            int extraCost = getInsertionCost(tour, k, order, costs);
+            if (extraCost < bestExtraCost) {
+                bestPosition = k;
+                bestExtraCost = extraCost;
+            }
+        }
+        return bestPosition;
+    }
+
+    /**
+     * Returns the number of moves inserting the order between positions `k` and `k + 1` adds to the tour.
+     */
+    static int getInsertionCost(int[] tour, int k, int order, int[][] costs) {
+        return costs[tour[k]][order] + costs[order][tour[k + 1]] - costs[tour[k]][tour[k + 1]];
+    }
+
+    /**
+     * Inserts the order between positions `k` and `k + 1`. The tour array must have room for another order.
+     */
+    static void insert(int[] tour, int routeLength, int k, int order) {
+        System.arraycopy(tour, k + 1, tour, k + 2, routeLength + 1 - k);
+        tour[k + 1] = order;
+    }
+
+    /**
+     * Removes the order at position `k` (from 1 to `routeLength`) from the tour.
+     */
+    static void remove(int[] tour, int routeLength, int k) {
+        System.arraycopy(tour, k + 1, tour, k, routeLength + 1 - k);
+    }
+}
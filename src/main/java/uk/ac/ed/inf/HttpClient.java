@@ -4,61 +4,193 @@ import java.io.IOException;
 import java.net.URI;
 import java.net.http.HttpRequest;
 import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.util.ArrayDeque;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
 
 /**
  * This class consists of static methods to make HTTP requests and handle their responses. Currently, only GET requests
  * are supported.
+ * Requests are made asynchronously. Each request times out after `REQUEST_TIMEOUT`, requests that fail because of a
+ * connection problem or a server error are retried up to `MAX_RETRIES` times with an exponential backoff, and at
+ * most `MAX_CONCURRENT_REQUESTS` requests are in flight at once (the rest wait in a queue).
  * @author Vivek Raja s1864074
  */
 public class HttpClient {
 
     /**
-     * The instantiation of an HTTP client used to make HTTP requests.
+     * The time after which a request (or connecting to the server) is given up on.
      */
-    private static final java.net.http.HttpClient client = java.net.http.HttpClient.newHttpClient();
+    private static final Duration REQUEST_TIMEOUT = Duration.ofSeconds(10);
 
     /**
-     * Makes an HTTP GET request to the specified `requestUrl`. If any exception is encountered while making the
-     * request, the method prints the error to screen and exits with status 1.
+     * The maximum number of times a failed request is retried.
+     */
+    private static final int MAX_RETRIES = 3;
+
+    /**
+     * The time to wait before the first retry of a request. The wait is doubled for each further retry.
+     */
+    private static final long INITIAL_BACKOFF_IN_MILLISECONDS = 100;
+
+    /**
+     * The maximum number of requests in flight at once.
+     */
+    private static final int MAX_CONCURRENT_REQUESTS = 16;
+
+    /**
+     * The instantiation of an HTTP client used to make HTTP requests. The client keeps its connections open and
+     * reuses them for later requests to the same server.
+     */
+    private static final java.net.http.HttpClient client = java.net.http.HttpClient.newBuilder()
+            .connectTimeout(REQUEST_TIMEOUT)
+            .build();
+
+    /**
+     * The requests waiting for one of the requests in flight to finish.
+     */
+    private static final Queue<Runnable> queuedRequests = new ArrayDeque<>();
+
+    /**
+     * The number of requests in flight.
+     */
+    private static int numRequestsInFlight = 0;
+
+    /**
+     * Makes an HTTP GET request to the specified `requestUrl`. If the request still fails after it has been retried,
+     * the method prints the error to screen and exits with status 1.
      * @param requestUrl The url to make an HTTP GET request to.
      * @return the body of the response of a successful request.
      */
     public static String getRequest(String requestUrl) {
+        try {
+            return getRequestAsync(requestUrl).join();
+        } catch (CompletionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof java.net.ConnectException) {
+                System.err.println("Fatal error: Unable to connect to " +
+                        requestUrl + ". Error message: " + cause.getMessage() + ".");
+            } else if (cause instanceof IOException) {
+                System.err.println("Fatal error: Unable to connect to " +
+                        requestUrl + " due to IO Exception. Error message: " + cause.getMessage() + ".");
+            } else {
+                System.err.println(cause.getMessage());
+            }
+            System.exit(1); // Exit the application
+        }
+
+        // We won't ever get here since we always `System.exit(1)` for any error.
+        return null;
+    }
+
+    /**
+     * Makes an HTTP GET request to the specified `requestUrl` without waiting for the response.
+     * @param requestUrl The url to make an HTTP GET request to.
+     * @return A future of the body of the response. The future completes exceptionally if the request still fails
+     * after it has been retried, or the response isn't successful.
+     */
+    public static CompletableFuture<String> getRequestAsync(String requestUrl) {
         // The instantiation of the HttpRequest object which contains details of the request we'd like to make
         HttpRequest request = HttpRequest.newBuilder()
                 .uri(URI.create(requestUrl))
+                .timeout(REQUEST_TIMEOUT)
                 .build();
 
+        CompletableFuture<String> body = new CompletableFuture<>();
+        sendWhenAllowed(() -> sendWithRetries(request, 0, body));
+        return body;
+    }
+
+    /**
+     * Sends the request and completes `body` with the body of the response, retrying the request if it fails
+     * because of a connection problem or a server error.
+     * @param request the request to send.
+     * @param retry the number of times the request has already been retried.
+     * @param body the future to complete.
+     */
+    private static void sendWithRetries(HttpRequest request, int retry, CompletableFuture<String> body) {
+        CompletableFuture<HttpResponse<String>> sentRequest;
         try {
-            // The response from the server
-            HttpResponse<String> response = client.send(request,
-                    HttpResponse.BodyHandlers.ofString());
-
-            switch (response.statusCode()) {
-                case 200:
-                    // Successful request so return the body.
-                    return response.body();
-                case 404:
-                    System.err.println("Path not found on server. Code: 404. Request URL: " + requestUrl + ".");
-                    System.exit(1); // Exit the application
-                default:
-                    System.err.println("Error encountered in GET request. Code: " + response.statusCode() + ". Request URL: " + requestUrl + ".");
-                    System.exit(1); // Exit the application
+            sentRequest = client.sendAsync(request, HttpResponse.BodyHandlers.ofString());
+        } catch (RuntimeException e) {
+            // The request couldn't even be sent (e.g. its URI isn't supported), so it won't finish by itself
+            finishRequest();
+            body.completeExceptionally(e);
+            return;
+        }
+        sentRequest.whenComplete((response, error) -> {
+            String requestUrl = request.uri().toString();
+            if (error == null && response.statusCode() == 200) {
+                // Successful request so return the body.
+                finishRequest();
+                body.complete(response.body());
+                return;
             }
-        } catch (java.net.ConnectException e) {
-            System.err.println("Fatal error: Unable to connect to " +
-                    requestUrl + ". Error message: " + e.getMessage() + ".");
-            System.exit(1); // Exit the application
-        } catch (IOException e) {
-            System.err.println("Fatal error: Unable to connect to " +
-                    requestUrl + " due to IO Exception. Error message: " + e.getMessage() + ".");
-            System.exit(1); // Exit the application
-        } catch (InterruptedException e) {
-            System.err.println("Request interrupted by user. Error message: " + e.getMessage() + ".");
-            System.exit(1); // Exit the application
+
+            // Only errors that can go away by themselves are worth retrying
+            boolean canRetry = error != null || response.statusCode() >= 500;
+            if (canRetry && retry < MAX_RETRIES) {
+                long backoff = INITIAL_BACKOFF_IN_MILLISECONDS << retry;
+                CompletableFuture.delayedExecutor(backoff, TimeUnit.MILLISECONDS)
+                        .execute(() -> sendWithRetries(request, retry + 1, body));
+                return;
+            }
+
+            finishRequest();
+            if (error != null) {
+                body.completeExceptionally(error instanceof CompletionException ? error.getCause() : error);
+            } else if (response.statusCode() == 404) {
+                body.completeExceptionally(new IOException("Path not found on server. Code: 404. Request URL: " +
+                        requestUrl + "."));
+            } else {
+                body.completeExceptionally(new IOException("Error encountered in GET request. Code: " +
+                        response.statusCode() + ". Request URL: " + requestUrl + "."));
+            }
+        });
+    }
+
+    /**
+     * Returns a future of the results of all the futures, which completes when all of them have completed.
+     * @param futures the futures, e.g. of the bodies of requests made with `getRequestAsync`.
+     * @return A future of the results, in the same order as `futures`. The future completes exceptionally if any of
+     * the futures complete exceptionally.
+     */
+    public static <T> CompletableFuture<List<T>> allOf(List<CompletableFuture<T>> futures) {
+        return CompletableFuture.allOf(futures.toArray(new CompletableFuture<?>[0]))
+                .thenApply(done -> futures.stream().map(CompletableFuture::join).collect(Collectors.toList()));
+    }
+
+    /**
+     * Sends the request now if fewer than `MAX_CONCURRENT_REQUESTS` requests are in flight, else queues it.
+     */
+    private static void sendWhenAllowed(Runnable sendRequest) {
+        synchronized (queuedRequests) {
+            if (numRequestsInFlight >= MAX_CONCURRENT_REQUESTS) {
+                queuedRequests.add(sendRequest);
+                return;
+            }
+            numRequestsInFlight++;
         }
+        sendRequest.run();
+    }
 
-        // We won't ever get here since we always `System.exit(1)` for any error.
-        return null;
+    /**
+     * Marks a request as no longer in flight and sends the next queued request, if there is one.
+     */
+    private static void finishRequest() {
+        Runnable nextRequest;
+        synchronized (queuedRequests) {
+            nextRequest = queuedRequests.poll();
+            if (nextRequest == null) {
+                numRequestsInFlight--;
+                return;
+            }
+        }
+        nextRequest.run();
     }
 }
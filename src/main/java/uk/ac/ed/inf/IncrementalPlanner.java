@@ -0,0 +1,391 @@
+package uk.ac.ed.inf;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Consumer;
+
+/**
+ * A planner for a drone whose orders can change during the day. Unlike `Drone`, which plans and flies the whole day
+ * at once, the planner keeps the stops the drone still has to make and its current position, so orders that come in
+ * while the drone is flying can be added to the route.
+ * A new order is inserted with cheapest insertion: its shops (as a block) and its delivery are put where they add the
+ * fewest moves to the route, without changing the order of the other stops. The cost of each leg is its number of
+ * moves, which comes from the path cache, so only the legs to and from the new stops are searched for. An order is
+ * only added if the route (including the return to the start) still fits in the moves left for the day.
+ * The planner isn't thread safe.
+ * @author Vivek Raja s1864074
+ */
+public class IncrementalPlanner {
+
+    /**
+     * The moves the drone has made so far.
+     */
+    private final ArrayList<Move> moves = new ArrayList<>();
+
+    /**
+     * The stops the drone still has to make, in the order it will make them.
+     */
+    private final ArrayList<Stop> stops = new ArrayList<>();
+
+    /**
+     * The number of moves of each leg of the route. Leg `i` goes from the current position (if `i` is 0) or stop
+     * `i - 1` to stop `i`, and the last leg goes back to the start. The moves of a leg to a stop include hovering at
+     * the stop.
+     */
+    private final ArrayList<Integer> legMoveCounts = new ArrayList<>();
+
+    /**
+     * The orders that have been delivered so far.
+     */
+    private final List<Order> ordersDelivered = new ArrayList<>();
+
+    /**
+     * The location the drone starts from and returns to.
+     */
+    private final LongLat start;
+
+    /**
+     * The current position of the drone.
+     */
+    private LongLat currPos;
+
+    /**
+     * Called with the moves of each leg as soon as they are flown.
+     */
+    private final Consumer<List<Move>> movesListener;
+
+    /**
+     * Instantiates a planner with a route for the orders known at the start of the day. The orders are visited in
+     * the order found by `Drone.routeSolver`, and orders that don't fit in the moves of the day are left out.
+     * @param start The start position of the drone.
+     * @param orders The orders known at the start of the day.
+     * @param movesListener Called with the moves of each leg as soon as they are flown.
+     */
+    public IncrementalPlanner(LongLat start, List<Order> orders, Consumer<List<Move>> movesListener) {
+        this.start = start;
+        this.currPos = start;
+        this.movesListener = movesListener;
+        this.legMoveCounts.add(0);
+
+        for (Order order : Drone.routeSolver.solve(start, orders)) {
+            List<Stop> orderStops = getStops(order);
+            int insertAt = stops.size();
+            stops.addAll(insertAt, orderStops);
+            updateLegMoveCounts();
+            if (getPlannedMoveCount() >= Drone.MAX_MOVES) {
+                stops.subList(insertAt, stops.size()).clear();
+                updateLegMoveCounts();
+                System.out.println("Unable to plan order " + order.getOrderNumber() + " due to not enough moves.");
+            }
+        }
+    }
+
+    /**
+     * Adds an order to the route at the cheapest position.
+     * @param order the new order.
+     * @return true if the order was added, or false if it doesn't fit in the moves left for the day.
+     */
+    public boolean addOrder(Order order) {
+        List<Stop> orderStops = getStops(order);
+        Stop delivery = orderStops.get(orderStops.size() - 1);
+        List<List<Stop>> shopBlocks = new ArrayList<>();
+        shopBlocks.add(orderStops.subList(0, orderStops.size() - 1));
+        if (orderStops.size() == 3) {
+            // Also try visiting the two shops the other way round
+            shopBlocks.add(List.of(orderStops.get(1), orderStops.get(0)));
+        }
+
+        Insertion best = null;
+        for (List<Stop> shopBlock : shopBlocks) {
+            Insertion insertion = findCheapestInsertion(shopBlock, delivery);
+            if (insertion != null && (best == null || insertion.extraMoves < best.extraMoves)) {
+                best = insertion;
+            }
+        }
+        if (best == null || getPlannedMoveCount() + best.extraMoves >= Drone.MAX_MOVES) {
+            return false;
+        }
+
+        stops.addAll(best.shopsIndex, best.shopBlock);
+        stops.add(best.deliveryIndex, delivery);
+        updateLegMoveCounts();
+        return true;
+    }
+
+    /**
+     * Flies to the next stop of the route. An order is left out if the drone can't reach its next stop and still get
+     * back to the start.
+     * @return The moves flown, or an empty list if there are no stops left or the stop couldn't be reached.
+     */
+    public List<Move> flyToNextStop() {
+        if (stops.isEmpty()) {
+            return new ArrayList<>();
+        }
+        Stop stop = stops.remove(0);
+        int movesRemaining = getRemainingMoves();
+
+        List<Move> path = null;
+        if (Drone.getMoveCountTo(start, stop.position) < movesRemaining) {
+            path = Drone.getPathTo(stop.position, currPos, movesRemaining, stop.order);
+        }
+        if (path == null || path.size() + 1 + Drone.getMoveCountTo(start, stop.position) >= movesRemaining) {
+            System.out.println("Unable to complete order " + stop.order.getOrderNumber());
+            stops.removeIf(otherStop -> otherStop.order == stop.order);
+            updateLegMoveCounts();
+            return new ArrayList<>();
+        }
+
+        // hover to pick or drop off a sandwich
+        List<Move> legMoves = new ArrayList<>(path);
+        LongLat stopPos = legMoves.isEmpty() ? currPos : legMoves.get(legMoves.size() - 1).getDest();
+        legMoves.add(new Move(stopPos, Drone.SPECIAL_HOVERING_ANGLE, stop.order));
+        moves.addAll(legMoves);
+        currPos = stopPos.copy();
+
+        if (stop.isDelivery) {
+            stop.order.markCompleted();
+            System.out.println("ORDER COMPLETED " + stop.order.getOrderNumber());
+            ordersDelivered.add(stop.order);
+        }
+
+        // The drone stops close to the stop, not on it, so the first leg has to be looked up again
+        updateLegMoveCounts();
+        movesListener.accept(legMoves);
+        return legMoves;
+    }
+
+    /**
+     * Flies to all the stops left in the route and then back to the start.
+     */
+    public void finish() {
+        while (!stops.isEmpty()) {
+            flyToNextStop();
+        }
+
+        List<Move> path = Drone.getPathTo(start, currPos, getRemainingMoves(), null);
+        if (path != null) {
+            moves.addAll(path);
+            currPos = path.isEmpty() ? currPos : path.get(path.size() - 1).getDest().copy();
+            movesListener.accept(path);
+        } else {
+            System.out.println("Couldn't return to start as path couldn't be found.");
+        }
+    }
+
+    /**
+     * @return The number of moves flown so far plus the estimated number of moves of the rest of the route,
+     * including the return to the start.
+     */
+    public long getPlannedMoveCount() {
+        long plannedMoveCount = moves.size();
+        for (int legMoveCount : legMoveCounts) {
+            plannedMoveCount += legMoveCount;
+        }
+        return plannedMoveCount;
+    }
+
+    /**
+     * @return The orders that still have stops in the route, in the order of their next stop.
+     */
+    public List<Order> getPlannedOrders() {
+        List<Order> plannedOrders = new ArrayList<>();
+        for (Stop stop : stops) {
+            if (!plannedOrders.contains(stop.order)) {
+                plannedOrders.add(stop.order);
+            }
+        }
+        return plannedOrders;
+    }
+
+    /**
+     * @return The moves the drone has made so far.
+     */
+    public ArrayList<Move> getMoves() {
+        return moves;
+    }
+
+    /**
+     * @return The orders that have been delivered so far.
+     */
+    public List<Order> getOrdersDelivered() {
+        return ordersDelivered;
+    }
+
+    /**
+     * @return The current position of the drone.
+     */
+    public LongLat getCurrentPosition() {
+        return currPos.copy();
+    }
+
+    /**
+     * Finds the cheapest place to insert a block of shops and a delivery into the route, with the delivery after the
+     * shops. The shops are either put on the same leg as the delivery (`shops, delivery` replaces the leg) or on an
+     * earlier leg, so the best position is found in time linear in the number of stops.
+     * @param shopBlock the shops, in the order they are visited. May be empty.
+     * @param delivery the delivery.
+     * @return The cheapest insertion, or null if the stops can't be reached.
+     */
+    private Insertion findCheapestInsertion(List<Stop> shopBlock, Stop delivery) {
+        int numLegs = legMoveCounts.size();
+        LongLat firstShopPos = shopBlock.isEmpty() ? null : shopBlock.get(0).position;
+        LongLat lastShopPos = shopBlock.isEmpty() ? null : shopBlock.get(shopBlock.size() - 1).position;
+
+        long shopBlockMoves = 0;
+        for (int i = 1; i < shopBlock.size(); i++) {
+            shopBlockMoves += getLegMoveCount(shopBlock.get(i - 1).position, shopBlock.get(i).position, true);
+        }
+
+        Insertion best = null;
+        // The cheapest way found so far to put the shops on one of the legs before the current one
+        long bestShopsMoves = Long.MAX_VALUE;
+        int bestShopsIndex = -1;
+        for (int leg = 0; leg < numLegs; leg++) {
+            LongLat legFrom = leg == 0 ? currPos : stops.get(leg - 1).position;
+            LongLat legTo = leg == numLegs - 1 ? start : stops.get(leg).position;
+            boolean legToIsStop = leg < numLegs - 1;
+            long legMoves = legMoveCounts.get(leg);
+            if (legMoves == Integer.MAX_VALUE) {
+                // The leg can't be flown (e.g. from where the drone is now), so taking it out of the route would look
+                // like it saves a huge number of moves
+                continue;
+            }
+
+            // The delivery on this leg, with the shops on an earlier leg
+            long deliveryMoves = getLegMoveCount(legFrom, delivery.position, true)
+                    + getLegMoveCount(delivery.position, legTo, legToIsStop) - legMoves;
+            if (!shopBlock.isEmpty() && bestShopsIndex >= 0) {
+                best = cheaper(best, new Insertion(shopBlock, bestShopsIndex, leg + shopBlock.size(),
+                        bestShopsMoves + deliveryMoves));
+            }
+
+            // The shops and delivery together on this leg
+            long togetherMoves = deliveryMoves;
+            if (!shopBlock.isEmpty()) {
+                togetherMoves = getLegMoveCount(legFrom, firstShopPos, true) + shopBlockMoves
+                        + getLegMoveCount(lastShopPos, delivery.position, true)
+                        + getLegMoveCount(delivery.position, legTo, legToIsStop) - legMoves;
+            }
+            best = cheaper(best, new Insertion(shopBlock, leg, leg + shopBlock.size(), togetherMoves));
+
+            // The shops on this leg, for a delivery on a later leg
+            if (!shopBlock.isEmpty()) {
+                long shopsMoves = getLegMoveCount(legFrom, firstShopPos, true) + shopBlockMoves
+                        + getLegMoveCount(lastShopPos, legTo, legToIsStop) - legMoves;
+                if (shopsMoves < bestShopsMoves) {
+                    bestShopsMoves = shopsMoves;
+                    bestShopsIndex = leg;
+                }
+            }
+        }
+        return best;
+    }
+
+    private static Insertion cheaper(Insertion best, Insertion insertion) {
+        // Legs that can't be flown have a huge number of moves, so they are never the cheapest that fits
+        if (insertion.extraMoves >= Drone.MAX_MOVES) {
+            return best;
+        }
+        return best == null || insertion.extraMoves < best.extraMoves ? insertion : best;
+    }
+
+    /**
+     * Looks up the number of moves of every leg of the route again. The number of moves of legs already flown are
+     * in the path cache, so only new legs are searched for. If a leg to a stop (or from the last stop back to the
+     * start) can't be flown, the order of that stop is left out of the route, so the other orders can still be
+     * delivered and new orders added.
+     */
+    private void updateLegMoveCounts() {
+        Order unreachableOrder;
+        do {
+            unreachableOrder = null;
+            legMoveCounts.clear();
+            LongLat legFrom = currPos;
+            for (Stop stop : stops) {
+                long legMoveCount = getLegMoveCount(legFrom, stop.position, true);
+                if (legMoveCount >= Integer.MAX_VALUE) {
+                    unreachableOrder = stop.order;
+                    break;
+                }
+                legMoveCounts.add((int) legMoveCount);
+                legFrom = stop.position;
+            }
+            if (unreachableOrder == null) {
+                long legMoveCount = getLegMoveCount(legFrom, start, false);
+                if (legMoveCount >= Integer.MAX_VALUE && !stops.isEmpty()) {
+                    unreachableOrder = stops.get(stops.size() - 1).order;
+                }
+                legMoveCounts.add((int) Math.min(Integer.MAX_VALUE, legMoveCount));
+            }
+
+            if (unreachableOrder != null) {
+                Order order = unreachableOrder;
+                System.out.println("Unable to complete order " + order.getOrderNumber());
+                stops.removeIf(stop -> stop.order == order);
+            }
+        } while (unreachableOrder != null);
+    }
+
+    /**
+     * Returns the number of moves to fly from `from` to close to `dest`, plus one move to hover if `dest` is a stop.
+     * Legs that can't be flown have `Integer.MAX_VALUE` moves.
+     */
+    private static long getLegMoveCount(LongLat from, LongLat dest, boolean destIsStop) {
+        long moveCount = Drone.getMoveCountTo(dest, from);
+        return destIsStop ? moveCount + 1 : moveCount;
+    }
+
+    private int getRemainingMoves() {
+        return Drone.MAX_MOVES - moves.size();
+    }
+
+    /**
+     * Returns the stops of an order: its shops and then its delivery.
+     */
+    private static List<Stop> getStops(Order order) {
+        List<Stop> orderStops = new ArrayList<>();
+        for (Shop shop : order.getShops()) {
+            orderStops.add(new Stop(shop.locationInLongLat, order, false));
+        }
+        orderStops.add(new Stop(order.getDeliverToInLongLat(), order, true));
+        return orderStops;
+    }
+
+    /**
+     * A stop the drone makes to pick up or deliver an order.
+     */
+    private static class Stop {
+        private final LongLat position;
+        private final Order order;
+        private final boolean isDelivery;
+
+        private Stop(LongLat position, Order order, boolean isDelivery) {
+            this.position = position;
+            this.order = order;
+            this.isDelivery = isDelivery;
+        }
+    }
+
+    /**
+     * A place to insert the stops of an order into the route, and how many moves it adds.
+     */
+    private static class Insertion {
+        private final List<Stop> shopBlock;
+        private final int shopsIndex;
+        private final int deliveryIndex;
+        private final long extraMoves;
+
+        /**
+         * @param shopBlock the shops of the order, in the order they are visited.
+         * @param shopsIndex the index in the current stops to insert the shops at.
+         * @param deliveryIndex the index of the delivery once the shops have been inserted.
+         * @param extraMoves the number of moves the stops add to the route.
+         */
+        private Insertion(List<Stop> shopBlock, int shopsIndex, int deliveryIndex, long extraMoves) {
+            this.shopBlock = shopBlock;
+            this.shopsIndex = shopsIndex;
+            this.deliveryIndex = deliveryIndex;
+            this.extraMoves = extraMoves;
+        }
+    }
+}
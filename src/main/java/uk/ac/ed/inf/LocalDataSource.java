@@ -0,0 +1,156 @@
+package uk.ac.ed.inf;
+
+import java.io.IOException;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.TreeMap;
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * A data source that reads the data from local files instead of the webserver and the database, so that the drone
+ * can plan without either of them running.
+ * The menus, no-fly zones and what three words details are read from a copy of the files the webserver serves (e.g.
+ * `website/`), at the same paths as on the webserver. The orders are read from a dump of the orders in the database
+ * made by `OrdersExporter` (e.g. `database/orders.tsv`), which is read once when the orders are first needed and
+ * then kept in memory. Files are read by mapping them into memory.
+ * @author Vivek Raja s1864074
+ */
+public class LocalDataSource extends DataSource {
+
+    /**
+     * The directory of the files the webserver serves.
+     */
+    private final Path websiteDirectory;
+
+    /**
+     * The dump of the orders in the database. Each line is an order and one of its items, separated by tabs:
+     * `orderNo`, `deliveryDate`, `customer`, `deliverTo` and `item` (empty if the order has no items).
+     */
+    private final Path ordersFile;
+
+    /**
+     * The orders in `ordersFile` of each day, or null if they haven't been read yet.
+     */
+    private NavigableMap<LocalDate, List<OrderRow>> orderRows;
+
+    /**
+     * Instantiates a LocalDataSource object. No files are read until the data is needed.
+     * @param websiteDirectory the directory of the files the webserver serves.
+     * @param ordersFile the dump of the orders in the database.
+     */
+    public LocalDataSource(Path websiteDirectory, Path ordersFile) {
+        this.websiteDirectory = websiteDirectory;
+        this.ordersFile = ordersFile;
+    }
+
+    @Override
+    public String getMenus() {
+        return readWebsiteFile(MENUS_PATH);
+    }
+
+    @Override
+    public String getNoFlyZones() {
+        return readWebsiteFile(NO_FLY_ZONES_PATH);
+    }
+
+    @Override
+    public String getW3WDetails(String words) {
+        return readWebsiteFile(getW3WDetailsPath(words));
+    }
+
+    @Override
+    public CompletableFuture<String> getW3WDetailsAsync(String words) {
+        try {
+            return CompletableFuture.completedFuture(readFile(getWebsiteFile(getW3WDetailsPath(words))));
+        } catch (IOException e) {
+            return CompletableFuture.failedFuture(e);
+        }
+    }
+
+    @Override
+    public Map<LocalDate, ArrayList<Order>> getOrders(LocalDate firstDate, LocalDate lastDate) {
+        List<OrderRow> rows = new ArrayList<>();
+        for (List<OrderRow> rowsOfDate : getOrderRows().subMap(firstDate, true, lastDate, true).values()) {
+            rows.addAll(rowsOfDate);
+        }
+        return toOrders(rows);
+    }
+
+    /**
+     * Returns the orders in `ordersFile` of each day, reading the file the first time they are needed.
+     */
+    private synchronized NavigableMap<LocalDate, List<OrderRow>> getOrderRows() {
+        if (orderRows != null) {
+            return orderRows;
+        }
+
+        // Each order is on as many lines as it has items, so group the lines by order number.
+        Map<String, OrderRow> rowsByOrderNo = new LinkedHashMap<>();
+        try {
+            for (String line : readFile(ordersFile).split("\n")) {
+                if (line.isEmpty()) {
+                    continue;
+                }
+                String[] columns = line.split("\t", -1);
+                OrderRow row = rowsByOrderNo.computeIfAbsent(columns[0], orderNo ->
+                        new OrderRow(orderNo, LocalDate.parse(columns[1]), columns[2], columns[3]));
+                if (!columns[4].isEmpty()) {
+                    row.itemNames.add(columns[4]);
+                }
+            }
+        } catch (IOException | RuntimeException e) {
+            System.err.println("Fatal error: Unable to read the orders from " + ordersFile + ". Error message: " +
+                    e.getMessage() + ".");
+            System.exit(1);
+        }
+
+        orderRows = new TreeMap<>();
+        for (OrderRow row : rowsByOrderNo.values()) {
+            orderRows.computeIfAbsent(row.deliveryDate, date -> new ArrayList<>()).add(row);
+        }
+        return orderRows;
+    }
+
+    /**
+     * Reads the file at `requestPath` in `websiteDirectory`. If the file can't be read, the method prints the error
+     * to screen and exits with status 1.
+     */
+    private String readWebsiteFile(String requestPath) {
+        try {
+            return readFile(getWebsiteFile(requestPath));
+        } catch (IOException e) {
+            System.err.println("Fatal error: Unable to read " + requestPath + " from " + websiteDirectory +
+                    ". Error message: " + e.getMessage() + ".");
+            System.exit(1);
+        }
+
+        // We won't ever get here since we always `System.exit(1)` for any error.
+        return null;
+    }
+
+    private Path getWebsiteFile(String requestPath) throws NoSuchFileException {
+        Path file = websiteDirectory.resolve(requestPath.substring(1)).normalize();
+        if (!file.startsWith(websiteDirectory.normalize())) {
+            throw new NoSuchFileException(requestPath);
+        }
+        return file;
+    }
+
+    /**
+     * Reads a UTF-8 text file by mapping it into memory.
+     */
+    private static String readFile(Path file) throws IOException {
+        try (FileChannel channel = FileChannel.open(file)) {
+            return StandardCharsets.UTF_8.decode(channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size()))
+                    .toString();
+        }
+    }
+}
@@ -1,17 +1,5 @@
 package uk.ac.ed.inf;
 
-
-import com.mapbox.geojson.Feature;
-import com.mapbox.geojson.FeatureCollection;
-import com.mapbox.geojson.Polygon;
-
-import java.awt.geom.Line2D;
-import java.awt.geom.Point2D;
-import java.util.ArrayList;
-import java.util.List;
-import java.util.Objects;
-import java.util.stream.Collectors;
-
 /**
  * A class that encapsulates the logic of the geographic coordinate (in terms of longitude and latitude) of an object.
  * Note that latitude and longitude coordinates are treated as though they are points on a plane, not points on the
@@ -25,6 +13,13 @@ public class LongLat {
    */
   private static final double CLOSE_TO_DISTANCE_TOLERANCE_IN_DEGREES = 0.00015;
 
+  /**
+   * The size (in degrees) of the squares of the lattice that positions are snapped to when they are compared. Two
+   * positions in the same square are equal, so the A* search treats positions reached along different routes (which
+   * only differ because of floating point error or a tiny offset) as the same node.
+   */
+  public static final double LATTICE_RESOLUTION_IN_DEGREES = Drone.MOVE_LENGTH_IN_DEGREES / 10;
+
   /**
    * The longitude coordinate of this LongLat object.
    */
@@ -38,22 +33,22 @@ public class LongLat {
   /**
    * The West longitude coordinate (in degrees) of the confinement area.
    */
-  private static final double CONFINEMENT_AREA_BOUND_WEST_LONGITUDE = -3.192473;
+  static final double CONFINEMENT_AREA_BOUND_WEST_LONGITUDE = -3.192473;
 
   /**
    * The East longitude coordinate (in degrees) of the confinement area.
    */
-  private static final double CONFINEMENT_AREA_BOUND_EAST_LONGITUDE = -3.184319;
+  static final double CONFINEMENT_AREA_BOUND_EAST_LONGITUDE = -3.184319;
 
   /**
    * The South latitude coordinate (in degrees) of the confinement area.
    */
-  private static final double CONFINEMENT_AREA_BOUND_SOUTH_LATITUDE = 55.942617;
+  static final double CONFINEMENT_AREA_BOUND_SOUTH_LATITUDE = 55.942617;
 
   /**
    * The North latitude coordinate (in degrees) of the confinement area.
    */
-  private static final double CONFINEMENT_AREA_BOUND_NORTH_LATITUDE = 55.946233;
+  static final double CONFINEMENT_AREA_BOUND_NORTH_LATITUDE = 55.946233;
 
   /**
    * The longitude from where the drone is launched from at AT.
@@ -65,29 +60,6 @@ public class LongLat {
    */
   public static final double APPLETON_TOWER_LATITUDE = 55.944494;
 
-  public static final List<Line2D> NO_FLY_ZONES_SIDES = getNoFlyZonesSides();
-
-  private static List<Line2D> getNoFlyZonesSides() {
-    var responseBody = WebServerClient.instance.get("/buildings/no-fly-zones.geojson");
-    List<Feature> features = FeatureCollection.fromJson(responseBody).features();
-    ArrayList<Line2D> sides = new ArrayList<>();
-    for (Feature feature : features) {
-      sides.addAll(getPolygonSides(feature));
-    }
-    return sides;
-  }
-
-  private static ArrayList<Line2D> getPolygonSides(Feature feature) {
-    ArrayList<Line2D> sides = new ArrayList<>();
-    var polygon = (Polygon) feature.geometry();
-    var points = Objects.requireNonNull(polygon).coordinates().get(0).stream()
-            .map(pt -> new Point2D.Double(pt.longitude(), pt.latitude())).collect(Collectors.toList());
-    for (int i = 0; i < points.size() - 1; i++) {
-      sides.add(new Line2D.Double(points.get(i), points.get(i + 1)));
-    }
-    return sides;
-  }
-
   /**
    * Instantiates a LongLat object and sets the public fields `longitude` and `latitude`.
    * @param longitude The longitude of the geographic coordinate.
@@ -126,8 +98,18 @@ public class LongLat {
    * @return true if this object is "close to" `other`, false otherwise.
    */
   public boolean closeTo(LongLat other) {
-    double distanceToCoordinate = distanceTo(other);
-    return distanceToCoordinate < CLOSE_TO_DISTANCE_TOLERANCE_IN_DEGREES;
+    return closeTo(this.longitude, this.latitude, other.longitude, other.latitude);
+  }
+
+  /**
+   * Checks whether two coordinates are "close to" each other, without having to create LongLat objects for them.
+   * @return true if the Euclidean distance between the coordinates is less than
+   * `CLOSE_TO_DISTANCE_TOLERANCE_IN_DEGREES`, false otherwise.
+   */
+  public static boolean closeTo(double longitude, double latitude, double otherLongitude, double otherLatitude) {
+    double lngDiff = otherLongitude - longitude;
+    double latDiff = otherLatitude - latitude;
+    return Math.sqrt(lngDiff * lngDiff + latDiff * latDiff) < CLOSE_TO_DISTANCE_TOLERANCE_IN_DEGREES;
   }
 
   public LongLat copy() {
@@ -136,8 +118,16 @@ public class LongLat {
 
 
   public int angleTo(LongLat other) {
-    var xDelta = other.longitude - this.longitude;
-    var yDelta = other.latitude - this.latitude;
+    return angleBetween(this.longitude, this.latitude, other.longitude, other.latitude);
+  }
+
+  /**
+   * Returns the angle (rounded to the nearest 10 degrees, in the range 0 to 350) of the direction from one
+   * coordinate to another, without having to create LongLat objects for them.
+   */
+  public static int angleBetween(double fromLongitude, double fromLatitude, double toLongitude, double toLatitude) {
+    var xDelta = toLongitude - fromLongitude;
+    var yDelta = toLatitude - fromLatitude;
     var angDeg = Math.toDegrees(Math.atan2(yDelta, xDelta));
     return (((int) (Math.round(angDeg / 10.0) * 10)) + 360) % 360;
   }
@@ -185,10 +175,48 @@ public class LongLat {
    * @return true if the longitude and latitude coordinates of this object are within the confinement area.
    */
   public boolean isConfined() {
-    return (CONFINEMENT_AREA_BOUND_WEST_LONGITUDE <= this.longitude
-            && this.longitude <= CONFINEMENT_AREA_BOUND_EAST_LONGITUDE
-            && CONFINEMENT_AREA_BOUND_SOUTH_LATITUDE <= this.latitude
-            && this.latitude <= CONFINEMENT_AREA_BOUND_NORTH_LATITUDE);
+    return isConfined(this.longitude, this.latitude);
+  }
+
+  /**
+   * Returns how many moves in a row can be made from this position at the angle `angleInDegrees` while staying within
+   * the confinement area. Moves that end within a tiny fraction of a move of its edge aren't counted.
+   * @param angleInDegrees the angle of the moves.
+   * @param maxMoves the most moves to count.
+   * @return The number of moves, from 0 to `maxMoves`, or 0 if this position is outside the confinement area.
+   */
+  public int getNumConfinedMoves(int angleInDegrees, int maxMoves) {
+    if (!isConfined()) {
+      return 0;
+    }
+    double angleInRadians = Math.toRadians(angleInDegrees);
+    double dx = Drone.MOVE_LENGTH_IN_DEGREES * Math.cos(angleInRadians);
+    double dy = Drone.MOVE_LENGTH_IN_DEGREES * Math.sin(angleInRadians);
+
+    // The number of moves (as a fraction) until the edges in the direction of the moves are reached
+    double exit = maxMoves + 1;
+    if (dx > 0) {
+      exit = Math.min(exit, (CONFINEMENT_AREA_BOUND_EAST_LONGITUDE - this.longitude) / dx);
+    } else if (dx < 0) {
+      exit = Math.min(exit, (CONFINEMENT_AREA_BOUND_WEST_LONGITUDE - this.longitude) / dx);
+    }
+    if (dy > 0) {
+      exit = Math.min(exit, (CONFINEMENT_AREA_BOUND_NORTH_LATITUDE - this.latitude) / dy);
+    } else if (dy < 0) {
+      exit = Math.min(exit, (CONFINEMENT_AREA_BOUND_SOUTH_LATITUDE - this.latitude) / dy);
+    }
+    return (int) Math.max(0, Math.min(maxMoves, Math.floor(exit - 1e-6)));
+  }
+
+  /**
+   * Checks whether a coordinate is within the confinement area, without having to create a LongLat object for it.
+   * @return true if the coordinate is within the confinement area.
+   */
+  public static boolean isConfined(double longitude, double latitude) {
+    return (CONFINEMENT_AREA_BOUND_WEST_LONGITUDE <= longitude
+            && longitude <= CONFINEMENT_AREA_BOUND_EAST_LONGITUDE
+            && CONFINEMENT_AREA_BOUND_SOUTH_LATITUDE <= latitude
+            && latitude <= CONFINEMENT_AREA_BOUND_NORTH_LATITUDE);
   }
 
   @Override
@@ -197,7 +225,27 @@ public class LongLat {
   }
 
   /**
-   * Defines the equality of LongLat object
+   * Returns the key of the square of the lattice this position is snapped to. Positions with the same key are equal.
+   * @return The quantised longitude and latitude packed into a long.
+   */
+  public long latticeKey() {
+    return latticeKey(this.longitude, this.latitude);
+  }
+
+  /**
+   * Returns the key of the square of the lattice a coordinate is snapped to, without having to create a LongLat
+   * object for it.
+   * @return The quantised longitude and latitude packed into a long.
+   */
+  public static long latticeKey(double longitude, double latitude) {
+    long x = Math.round(longitude / LATTICE_RESOLUTION_IN_DEGREES);
+    long y = Math.round(latitude / LATTICE_RESOLUTION_IN_DEGREES);
+    return (x << 32) ^ (y & 0xFFFFFFFFL);
+  }
+
+  /**
+   * Defines the equality of LongLat object. Two positions are equal if they are snapped to the same square of the
+   * lattice (see `LATTICE_RESOLUTION_IN_DEGREES`).
    *
    * @param o Object to check equality against
    * @return boolean  whether they are equal or not
@@ -209,19 +257,17 @@ public class LongLat {
     if (o == null || getClass() != o.getClass())
       return false;
     LongLat other = (LongLat) o;
-    return Math.abs(Double.compare(other.longitude, longitude)) <= 0.00001
-        && Math.abs(Double.compare(other.latitude, latitude)) <= 0.00001;
+    return latticeKey() == other.latticeKey();
   }
 
   /**
-   * Return the hashed value of the object in int
+   * Return the hashed value of the object in int. Equal positions have the same lattice key, so they have the same
+   * hash.
    *
    * @return int  The hashed value of the object
    */
   @Override
   public int hashCode() {
-      return Objects.hash(longitude, latitude);
+      return Long.hashCode(latticeKey());
   }
-
-
 }
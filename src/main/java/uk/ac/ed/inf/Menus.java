@@ -6,10 +6,11 @@ import com.google.gson.reflect.TypeToken;
 import java.lang.reflect.Type;
 
 import java.util.*;
+import java.util.stream.Collectors;
 
 /**
- * This class encapsulates the logic required to access information of the menus of the sandwich shops available on a
- * webserver. The webserver that the menus are accessed from are specified in the constructor.
+ * This class encapsulates the logic required to access information of the menus of the sandwich shops. The menus are
+ * read from `DataSource.instance` the first time they are needed.
  * @author Vivek Raja s1864074
  */
 public class Menus {
@@ -22,37 +23,87 @@ public class Menus {
   private final int DELIVERY_COST_IN_PENCE = 50;
 
   /**
-   * A HashMap of all the sandwich shops available for the drone delivery service. The key is the name of the shop
-   * and value is the `SandwichShop` object. Currently, this object is unused by methods in this class.
+   * The maps of the menus fetched last, or null if the menus haven't been fetched yet. The maps are replaced together,
+   * so a thread never sees maps from two different fetches.
    */
-  private Map<String, Shop> sandwichShopsMap = new HashMap<>();
+  private volatile MenuMaps menuMaps = null;
 
   /**
-   * A HashMap of all the items available for the drone delivery service. The key is the name of the item and value is
-   * the `Item` object.
+   * The maps built from one fetch of the menus, which aren't changed after they are built.
    */
-  private Map<String, Shop.Item> itemsMap = new HashMap<>();
-
-  private Map<Shop.Item, Shop> itemsShopMap = new HashMap<>();
-
-  private final String menusRequestPath = "/menus/menus.json";
+  private static class MenuMaps {
+
+    /**
+     * A HashMap of all the sandwich shops available for the drone delivery service. The key is the name of the shop
+     * and value is the `SandwichShop` object.
+     */
+    private final Map<String, Shop> sandwichShopsMap;
+
+    /**
+     * A HashMap of all the items available for the drone delivery service. The key is the name of the item and value
+     * is the `Item` object.
+     */
+    private final Map<String, Shop.Item> itemsMap;
+
+    /**
+     * A HashMap of the shop that sells each item.
+     */
+    private final Map<Shop.Item, Shop> itemsShopMap;
+
+    /**
+     * The locations of all the sandwich shops.
+     */
+    private final Set<LongLat> shopLocations;
+
+    private MenuMaps(Map<String, Shop> sandwichShopsMap, Map<String, Shop.Item> itemsMap,
+                     Map<Shop.Item, Shop> itemsShopMap) {
+      this.sandwichShopsMap = Collections.unmodifiableMap(sandwichShopsMap);
+      this.itemsMap = Collections.unmodifiableMap(itemsMap);
+      this.itemsShopMap = Collections.unmodifiableMap(itemsShopMap);
+      Set<LongLat> shopLocations = new LinkedHashSet<>();
+      for (Shop shop : sandwichShopsMap.values()) {
+        shopLocations.add(shop.locationInLongLat);
+      }
+      this.shopLocations = Collections.unmodifiableSet(shopLocations);
+    }
+  }
 
   /**
-   * Instantiates the Menu object which retrieves and parses the menus from the specified webserver.
-   * The menus are fetched and parsed on instantiation of this object. To retrieve the updated menus from the webserver,
-   * another instance of this class will have to be created.
+   * Instantiates the Menu object. The menus are fetched and parsed from `DataSource.instance` the first time they are
+   * needed, or when `fetchMenu` is called.
    */
   public Menus() {
-    fetchMenu();
   }
 
+  /**
+   * Fetches and parses the menus from `DataSource.instance`, replacing any menus fetched before.
+   */
   public void fetchMenu() {
-    String menusJsonResponse = WebServerClient.instance.get(menusRequestPath);
+    String menusJsonResponse = DataSource.instance.getMenus();
     parseMenus(menusJsonResponse);
   }
 
   /**
-   * Parses the list of sandwich shops and their items into the private fields `sandwichShopsMap` and `itemsMap`.
+   * Fetches the menus if they haven't been fetched yet.
+   * @return The maps of the menus.
+   */
+  private MenuMaps fetchMenuIfNeeded() {
+    MenuMaps menuMaps = this.menuMaps;
+    if (menuMaps == null) {
+      synchronized (this) {
+        if (this.menuMaps == null) {
+          fetchMenu();
+        }
+        menuMaps = this.menuMaps;
+      }
+    }
+    return menuMaps;
+  }
+
+  /**
+   * Parses the list of sandwich shops and their items into the maps of `menuMaps`. The maps are built before they
+   * replace the current ones and aren't changed afterwards, so the menus can be read from several threads while they
+   * are fetched again.
    * @param menusJson The list of sandwich shops in JSON format.
    */
   private void parseMenus(String menusJson) {
@@ -60,17 +111,26 @@ public class Menus {
     Type sandwichShopListType = new TypeToken<ArrayList<Shop>>() {}.getType();
     ArrayList<Shop> shops = new Gson().fromJson(menusJson, sandwichShopListType);
 
+    Map<String, Shop> sandwichShopsMap = new HashMap<>();
+    Map<String, Shop.Item> itemsMap = new HashMap<>();
+    Map<Shop.Item, Shop> itemsShopMap = new HashMap<>();
+
+    // Fetch the locations of all the shops at the same time
+    W3WCache.instance.prefetch(shops.stream().map(shop -> shop.location).collect(Collectors.toList()));
+
     // add each shop to the `sandwichShopsMap` hash map
     for (Shop shop : shops) {
       shop.locationInLongLat = W3W.longLat(shop.location);
-      this.sandwichShopsMap.put(shop.name, shop);
+      sandwichShopsMap.put(shop.name, shop);
 
       // add all items the sandwich shops sells to the `itemsMap` hash map.
       for (Shop.Item menuItem : shop.menu) {
-        this.itemsMap.put(menuItem.item, menuItem);
-        this.itemsShopMap.put(menuItem, shop);
+        itemsMap.put(menuItem.item, menuItem);
+        itemsShopMap.put(menuItem, shop);
       }
     }
+
+    this.menuMaps = new MenuMaps(sandwichShopsMap, itemsMap, itemsShopMap);
   }
 
   /**
@@ -84,13 +144,14 @@ public class Menus {
       // If no items are to be delivered, there is no item cost or drone delivery cost.
       return 0;
     }
+    Map<String, Shop.Item> itemsMap = fetchMenuIfNeeded().itemsMap;
 
     // Add the drone delivery cost
     int totalDeliveryCost = this.DELIVERY_COST_IN_PENCE;
 
     // Add the cost of each item
     for (String itemName : itemNames) {
-      Shop.Item item = this.itemsMap.get(itemName);
+      Shop.Item item = itemsMap.get(itemName);
       totalDeliveryCost += item.pence;
     }
 
@@ -98,20 +159,29 @@ public class Menus {
   }
 
   public ArrayList<Shop.Item> parseItems(ArrayList<String> itemNames) {
+    Map<String, Shop.Item> itemsMap = fetchMenuIfNeeded().itemsMap;
     ArrayList<Shop.Item> items = new ArrayList<>();
 
     for (String itemName : itemNames) {
-      Shop.Item item = this.itemsMap.get(itemName);
+      Shop.Item item = itemsMap.get(itemName);
       items.add(item);
     }
 
     return items;
   }
 
+  /**
+   * @return The locations of all the sandwich shops, which are only collected once per fetch of the menus.
+   */
+  public Set<LongLat> getShopLocations() {
+    return fetchMenuIfNeeded().shopLocations;
+  }
+
   public ArrayList<Shop> getShopsForItems(ArrayList<Shop.Item> items) {
+    Map<Shop.Item, Shop> itemsShopMap = fetchMenuIfNeeded().itemsShopMap;
     Set<Shop> shops = new LinkedHashSet<>();
     for (Shop.Item item : items) {
-      shops.add(this.itemsShopMap.get(item));
+      shops.add(itemsShopMap.get(item));
     }
 
     ArrayList<Shop> shopList = new ArrayList<Shop>();
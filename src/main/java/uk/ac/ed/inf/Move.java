@@ -1,7 +1,5 @@
 package uk.ac.ed.inf;
 
-import java.awt.geom.Line2D;
-import java.awt.geom.Point2D;
 import java.util.List;
 
 public class Move {
@@ -16,12 +14,6 @@ public class Move {
      */
     private LongLat dest;
 
-    /**
-     * The Line2D line of the move. This is used to check intersections with the sides of the polygons of the
-     * no-fly zones.
-     */
-    private final Line2D moveLine;
-
     /**
      * The angle the move is made in.
      */
@@ -48,9 +40,6 @@ public class Move {
         this.dest = orig.nextPosition(angle, numMoves);
         this.order = order;
         this.angle = angle;
-        var origPoint2D = new Point2D.Double(orig.longitude, orig.latitude);
-        var destPoint2D = new Point2D.Double(dest.longitude, dest.latitude);
-        this.moveLine = new Line2D.Double(origPoint2D, destPoint2D);
     }
 
     public Move(LongLat orig, int angle, Order order) {
@@ -93,12 +82,58 @@ public class Move {
     }
 
     public boolean intersectsWithNoFlyZone() {
-        for (Line2D side : LongLat.NO_FLY_ZONES_SIDES) {
-            if (this.intersects(side)) {
-                return true;
-            }
+        // Only the sides in the cells that the move passes over are checked
+        return NoFlyZones.INDEX.intersects(orig.longitude, orig.latitude, dest.longitude, dest.latitude);
+    }
+
+    /**
+     * Returns how many valid moves in a row (see `isValid`) can be made from `orig` at the angle `angle`. The moves
+     * are checked together, with the clearance raster or one ray cast against the no-fly zones, rather than one at a
+     * time. The count can be lower than the number of valid moves: far from the no-fly zones only the moves within the
+     * clearance are counted, and a move that passes very close to a no-fly zone or the edge of the confinement area
+     * isn't counted. So a count of 0 doesn't mean the first move is invalid, and it has to be checked with `isValid`.
+     * @param orig the position the moves start from.
+     * @param angle the angle of the moves.
+     * @param maxMoves the most moves to count.
+     * @return The number of valid moves, from 0 to `maxMoves`.
+     */
+    public static int getNumValidMoves(LongLat orig, int angle, int maxMoves) {
+        // Far from the no-fly zones and the edges of the confinement area, the moves in any direction are valid for as
+        // far as both are away, so the ray is only cast when there is something close to the drone
+        double distanceToEdge = Math.min(
+                Math.min(orig.longitude - LongLat.CONFINEMENT_AREA_BOUND_WEST_LONGITUDE,
+                        LongLat.CONFINEMENT_AREA_BOUND_EAST_LONGITUDE - orig.longitude),
+                Math.min(orig.latitude - LongLat.CONFINEMENT_AREA_BOUND_SOUTH_LATITUDE,
+                        LongLat.CONFINEMENT_AREA_BOUND_NORTH_LATITUDE - orig.latitude));
+        double clearance = Math.min(distanceToEdge, NoFlyZones.CLEARANCE.getClearance(orig.longitude, orig.latitude));
+        int numMovesInClearance = (int) Math.floor(clearance / Drone.MOVE_LENGTH_IN_DEGREES - 1e-6);
+        if (numMovesInClearance > 0) {
+            return Math.min(numMovesInClearance, maxMoves);
         }
-        return false;
+        return NoFlyZones.INDEX.getNumClearMoves(orig.longitude, orig.latitude, angle,
+                orig.getNumConfinedMoves(angle, maxMoves));
+    }
+
+    /**
+     * Checks whether each of the moves intersects a no-fly zone, like `intersectsWithNoFlyZone`, but checks all the
+     * moves together. The moves must all start at the same position, like the fan of moves from a node of a search.
+     * @param moves the moves to check.
+     * @return Whether each move intersects a no-fly zone.
+     */
+    public static boolean[] intersectWithNoFlyZone(Move[] moves) {
+        boolean[] intersects = new boolean[moves.length];
+        if (moves.length == 0) {
+            return intersects;
+        }
+        double[] destLongitudes = new double[moves.length];
+        double[] destLatitudes = new double[moves.length];
+        for (int i = 0; i < moves.length; i++) {
+            destLongitudes[i] = moves[i].dest.longitude;
+            destLatitudes[i] = moves[i].dest.latitude;
+        }
+        NoFlyZones.INDEX.intersects(moves[0].orig.longitude, moves[0].orig.latitude, destLongitudes, destLatitudes,
+                moves.length, intersects);
+        return intersects;
     }
 
     public static void addOrder(List<Move> moves, Order order) {
@@ -111,10 +146,6 @@ public class Move {
 //        this.order = order;
 //    }
 
-    public boolean intersects(Line2D side) {
-        return this.moveLine.intersectsLine(side);
-    }
-
     @Override
     public String toString() {
         return String.format("[(%3f,%3f),(%3f,%3f),%d]", this.orig.longitude, this.orig.latitude, this.dest.longitude, this.dest.latitude, this.angle);
@@ -0,0 +1,81 @@
+package uk.ac.ed.inf;
+
+import java.awt.geom.Line2D;
+import java.util.List;
+
+/**
+ * A raster of the clearance of the confinement area, i.e. how far each position is from the nearest side of a no-fly
+ * zone. Each cell of the raster stores a lower bound of the distance from any position in the cell to the nearest
+ * side, so a line that starts in a cell and is shorter than its clearance can't intersect a side.
+ * The raster is built once, when the no-fly zones are loaded. Positions outside the confinement area have a
+ * clearance of 0, so lines near or outside its edges are always checked exactly.
+ * @author Vivek Raja s1864074
+ */
+public class NoFlyZoneClearance {
+
+    /**
+     * The length (in degrees) of the sides of a cell of the raster.
+     */
+    static final double CELL_SIZE_IN_DEGREES = Drone.MOVE_LENGTH_IN_DEGREES / 2;
+
+    /**
+     * The number of cells per degree, so that finding the cell of a position only needs multiplications.
+     */
+    private static final double CELLS_PER_DEGREE = 1 / CELL_SIZE_IN_DEGREES;
+
+    /**
+     * The number of columns (West to East) of the raster.
+     */
+    private final int numColumns;
+
+    /**
+     * The number of rows (South to North) of the raster.
+     */
+    private final int numRows;
+
+    /**
+     * The clearance of each cell, stored one row after another from the South West corner of the confinement area.
+     */
+    private final double[] clearances;
+
+    /**
+     * Builds the clearance raster of the given sides over the confinement area.
+     * @param sides the sides of the no-fly zones.
+     */
+    public NoFlyZoneClearance(List<Line2D> sides) {
+        this.numColumns = (int) Math.ceil((LongLat.CONFINEMENT_AREA_BOUND_EAST_LONGITUDE
+                - LongLat.CONFINEMENT_AREA_BOUND_WEST_LONGITUDE) / CELL_SIZE_IN_DEGREES);
+        this.numRows = (int) Math.ceil((LongLat.CONFINEMENT_AREA_BOUND_NORTH_LATITUDE
+                - LongLat.CONFINEMENT_AREA_BOUND_SOUTH_LATITUDE) / CELL_SIZE_IN_DEGREES);
+        this.clearances = new double[numColumns * numRows];
+
+        // Any position in a cell is at most half a diagonal from its centre. The clearance is also kept a little
+        // smaller than that, so that rounding can't make a line that touches a side look clear.
+        double margin = CELL_SIZE_IN_DEGREES * Math.sqrt(2) / 2 + CELL_SIZE_IN_DEGREES / 16;
+        for (int row = 0; row < numRows; row++) {
+            double y = LongLat.CONFINEMENT_AREA_BOUND_SOUTH_LATITUDE + (row + 0.5) * CELL_SIZE_IN_DEGREES;
+            for (int column = 0; column < numColumns; column++) {
+                double x = LongLat.CONFINEMENT_AREA_BOUND_WEST_LONGITUDE + (column + 0.5) * CELL_SIZE_IN_DEGREES;
+                double distance = Double.POSITIVE_INFINITY;
+                for (Line2D side : sides) {
+                    distance = Math.min(distance, side.ptSegDist(x, y));
+                }
+                clearances[row * numColumns + column] = Math.max(0, distance - margin);
+            }
+        }
+    }
+
+    /**
+     * Returns the clearance of the position (`x`, `y`).
+     * @return A distance (in degrees) that is at most the distance from the position to the nearest side of a no-fly
+     * zone, or 0 if the position is outside the confinement area.
+     */
+    public double getClearance(double x, double y) {
+        double column = (x - LongLat.CONFINEMENT_AREA_BOUND_WEST_LONGITUDE) * CELLS_PER_DEGREE;
+        double row = (y - LongLat.CONFINEMENT_AREA_BOUND_SOUTH_LATITUDE) * CELLS_PER_DEGREE;
+        if (!(column >= 0 && column < numColumns && row >= 0 && row < numRows)) {
+            return 0;
+        }
+        return clearances[(int) row * numColumns + (int) column];
+    }
+}
@@ -0,0 +1,398 @@
+package uk.ac.ed.inf;
+
+import java.awt.geom.Line2D;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * A uniform grid index of the sides of the no-fly zones. Each cell of the grid stores the sides that pass through
+ * it, so an intersection check only has to test the sides in the cells that the bounding box of a line touches
+ * instead of every side of every no-fly zone.
+ * The sides are stored in flat `double[]` arrays and the sides of each cell are stored in one flat `int[]` array
+ * (the sides of cell `c` are at indices `cellStarts[c]` to `cellStarts[c + 1]`), so checks don't allocate.
+ * Before the sides are tested, a line is walked along with the clearance raster of the no-fly zones: each step is as
+ * long as the clearance where it starts, so it can't cross a side, and only the rest of the line from where the
+ * clearance runs out is tested exactly. A short move far from every no-fly zone is accepted after one lookup.
+ * @author Vivek Raja s1864074
+ */
+public class NoFlyZoneIndex {
+
+    /**
+     * The length (in degrees) of the sides of a cell of the grid.
+     */
+    private static final double CELL_SIZE_IN_DEGREES = 4 * Drone.MOVE_LENGTH_IN_DEGREES;
+
+    /**
+     * The start longitudes of the sides.
+     */
+    private final double[] x1s;
+
+    /**
+     * The start latitudes of the sides.
+     */
+    private final double[] y1s;
+
+    /**
+     * The end longitudes of the sides.
+     */
+    private final double[] x2s;
+
+    /**
+     * The end latitudes of the sides.
+     */
+    private final double[] y2s;
+
+    /**
+     * The longitude of the West edge of the grid.
+     */
+    private final double minLongitude;
+
+    /**
+     * The latitude of the South edge of the grid.
+     */
+    private final double minLatitude;
+
+    /**
+     * The number of columns (West to East) of the grid.
+     */
+    private final int numColumns;
+
+    /**
+     * The number of rows (South to North) of the grid.
+     */
+    private final int numRows;
+
+    /**
+     * The clearance raster of the sides.
+     */
+    private final NoFlyZoneClearance clearance;
+
+    /**
+     * The index into `cellSides` of the first side of each cell. Has one more element than there are cells.
+     */
+    private final int[] cellStarts;
+
+    /**
+     * The indices of the sides in each cell, stored one cell after another.
+     */
+    private final int[] cellSides;
+
+    /**
+     * The most cells that the lines checked together by the batch `intersects` can touch. More lines are checked one
+     * at a time, as the sides of every cell would be tested against every line.
+     */
+    private static final int MAX_BATCH_CELLS = 4;
+
+    /**
+     * The fraction of a move that `getNumClearMoves` keeps away from the sides, which is far more than the rounding
+     * errors of positions.
+     */
+    private static final double RAY_MARGIN = 1e-6;
+
+    /**
+     * The clearance below which a line is tested exactly, rather than walked along in tiny steps.
+     */
+    private static final double MIN_CLEARANCE_IN_DEGREES = NoFlyZoneClearance.CELL_SIZE_IN_DEGREES / 2;
+
+    /**
+     * Builds the index of the given sides.
+     * @param sides the sides of the no-fly zones.
+     * @param clearance the clearance raster of the same sides.
+     */
+    public NoFlyZoneIndex(List<Line2D> sides, NoFlyZoneClearance clearance) {
+        this.clearance = clearance;
+        int numSides = sides.size();
+        this.x1s = new double[numSides];
+        this.y1s = new double[numSides];
+        this.x2s = new double[numSides];
+        this.y2s = new double[numSides];
+        double minX = Double.POSITIVE_INFINITY, minY = Double.POSITIVE_INFINITY;
+        double maxX = Double.NEGATIVE_INFINITY, maxY = Double.NEGATIVE_INFINITY;
+        for (int i = 0; i < numSides; i++) {
+            Line2D side = sides.get(i);
+            x1s[i] = side.getX1();
+            y1s[i] = side.getY1();
+            x2s[i] = side.getX2();
+            y2s[i] = side.getY2();
+            minX = Math.min(minX, Math.min(x1s[i], x2s[i]));
+            minY = Math.min(minY, Math.min(y1s[i], y2s[i]));
+            maxX = Math.max(maxX, Math.max(x1s[i], x2s[i]));
+            maxY = Math.max(maxY, Math.max(y1s[i], y2s[i]));
+        }
+        if (numSides == 0) {
+            minX = minY = maxX = maxY = 0;
+        }
+        this.minLongitude = minX;
+        this.minLatitude = minY;
+        this.numColumns = (int) ((maxX - minX) / CELL_SIZE_IN_DEGREES) + 1;
+        this.numRows = (int) ((maxY - minY) / CELL_SIZE_IN_DEGREES) + 1;
+
+        // Put each side in every cell its bounding box touches
+        List<List<Integer>> sidesPerCell = new ArrayList<>();
+        for (int c = 0; c < numColumns * numRows; c++) {
+            sidesPerCell.add(new ArrayList<>());
+        }
+        for (int i = 0; i < numSides; i++) {
+            int startColumn = getColumn(Math.min(x1s[i], x2s[i]));
+            int endColumn = getColumn(Math.max(x1s[i], x2s[i]));
+            int startRow = getRow(Math.min(y1s[i], y2s[i]));
+            int endRow = getRow(Math.max(y1s[i], y2s[i]));
+            for (int row = startRow; row <= endRow; row++) {
+                for (int column = startColumn; column <= endColumn; column++) {
+                    sidesPerCell.get(row * numColumns + column).add(i);
+                }
+            }
+        }
+
+        this.cellStarts = new int[numColumns * numRows + 1];
+        for (int c = 0; c < numColumns * numRows; c++) {
+            cellStarts[c + 1] = cellStarts[c] + sidesPerCell.get(c).size();
+        }
+        this.cellSides = new int[cellStarts[numColumns * numRows]];
+        for (int c = 0; c < numColumns * numRows; c++) {
+            List<Integer> cell = sidesPerCell.get(c);
+            for (int j = 0; j < cell.size(); j++) {
+                cellSides[cellStarts[c] + j] = cell.get(j);
+            }
+        }
+    }
+
+    /**
+     * Checks whether the line from (`x1`, `y1`) to (`x2`, `y2`) intersects any side of the no-fly zones.
+     * @return true if the line intersects a side, false otherwise.
+     */
+    public boolean intersects(double x1, double y1, double x2, double y2) {
+        double stepClearance = clearance.getClearance(x1, y1);
+        if (stepClearance < MIN_CLEARANCE_IN_DEGREES) {
+            return intersectsExactly(x1, y1, x2, y2);
+        }
+        if (stepClearance >= Math.abs(x2 - x1) + Math.abs(y2 - y1)) {
+            // The line is shorter than the clearance where it starts
+            return false;
+        }
+
+        double length = Math.hypot(x2 - x1, y2 - y1);
+        double travelled = 0;
+        for (; stepClearance >= MIN_CLEARANCE_IN_DEGREES; stepClearance = clearance.getClearance(x1, y1)) {
+            travelled += stepClearance;
+            if (travelled >= length) {
+                return false;
+            }
+            x1 += (x2 - x1) * stepClearance / (length - travelled + stepClearance);
+            y1 += (y2 - y1) * stepClearance / (length - travelled + stepClearance);
+        }
+        return intersectsExactly(x1, y1, x2, y2);
+    }
+
+    /**
+     * Checks whether each of the lines from (`x1`, `y1`) to (`endXs[i]`, `endYs[i]`) intersects any side of the no-fly
+     * zones, for example the fan of moves from a node of a search. The lines that aren't accepted by the clearance
+     * raster are tested together: the cells the lines touch are visited once, and each side in them is tested against
+     * all the lines left. The lines all start at the same position, so which side of each side of the no-fly zones
+     * the start is on is only found once, rather than once for every line. The tests are the same `Line2D.relativeCCW`
+     * tests that `Line2D.linesIntersect` makes, so the results are the same as checking the lines one at a time.
+     * Lines that together touch more than `MAX_BATCH_CELLS` cells, like the long look ahead lines of the searches, are
+     * checked one at a time instead.
+     * @param numLines the number of lines, which are the first `numLines` elements of `endXs` and `endYs`.
+     * @param results the array to put whether each line intersects a side in.
+     */
+    public void intersects(double x1, double y1, double[] endXs, double[] endYs, int numLines, boolean[] results) {
+        double startClearance = clearance.getClearance(x1, y1);
+        long linesLeft = 0;
+        double minX = x1, maxX = x1, minY = y1, maxY = y1;
+        for (int i = 0; i < numLines; i++) {
+            results[i] = false;
+            if (startClearance >= MIN_CLEARANCE_IN_DEGREES
+                    && startClearance >= Math.abs(endXs[i] - x1) + Math.abs(endYs[i] - y1)) {
+                continue;
+            }
+            linesLeft |= 1L << i;
+            minX = Math.min(minX, endXs[i]);
+            maxX = Math.max(maxX, endXs[i]);
+            minY = Math.min(minY, endYs[i]);
+            maxY = Math.max(maxY, endYs[i]);
+        }
+        if (linesLeft == 0 || maxX < minLongitude || minX > minLongitude + numColumns * CELL_SIZE_IN_DEGREES
+                || maxY < minLatitude || minY > minLatitude + numRows * CELL_SIZE_IN_DEGREES) {
+            return;
+        }
+
+        int startColumn = getColumn(minX), endColumn = getColumn(maxX);
+        int startRow = getRow(minY), endRow = getRow(maxY);
+        if (numLines > Long.SIZE || (endColumn - startColumn + 1) * (endRow - startRow + 1) > MAX_BATCH_CELLS) {
+            for (int i = 0; i < numLines; i++) {
+                results[i] = (linesLeft & (1L << i)) != 0 && intersects(x1, y1, endXs[i], endYs[i]);
+            }
+            return;
+        }
+
+        for (int row = startRow; row <= endRow; row++) {
+            for (int column = startColumn; column <= endColumn; column++) {
+                int cell = row * numColumns + column;
+                for (int j = cellStarts[cell]; j < cellStarts[cell + 1]; j++) {
+                    int side = cellSides[j];
+                    double sideX1 = x1s[side], sideY1 = y1s[side], sideX2 = x2s[side], sideY2 = y2s[side];
+                    int startSide = Line2D.relativeCCW(sideX1, sideY1, sideX2, sideY2, x1, y1);
+                    for (long lines = linesLeft; lines != 0; lines &= lines - 1) {
+                        int i = Long.numberOfTrailingZeros(lines);
+                        double endX = endXs[i], endY = endYs[i];
+                        if (startSide * Line2D.relativeCCW(sideX1, sideY1, sideX2, sideY2, endX, endY) <= 0
+                                && Line2D.relativeCCW(x1, y1, endX, endY, sideX1, sideY1)
+                                * Line2D.relativeCCW(x1, y1, endX, endY, sideX2, sideY2) <= 0) {
+                            results[i] = true;
+                            linesLeft &= ~(1L << i);
+                        }
+                    }
+                    if (linesLeft == 0) {
+                        return;
+                    }
+                }
+            }
+        }
+    }
+
+    /**
+     * Returns how many moves in a row can be made from (`x`, `y`) at the angle `angle` without any of them intersecting
+     * a side of the no-fly zones. If the clearance raster shows that all the moves are clear, no sides are tested.
+     * Otherwise the ray of the moves is intersected once with each side in the cells it passes over, rather than each
+     * move being checked on its own. The count is kept a tiny fraction of a move short of the nearest intersection, so
+     * a move that only just misses a side is left for an exact check instead.
+     * @param angle the angle of the moves, in degrees.
+     * @param maxMoves the most moves to count.
+     * @return The number of clear moves, from 0 to `maxMoves`.
+     */
+    public int getNumClearMoves(double x, double y, int angle, int maxMoves) {
+        if (maxMoves <= 0) {
+            return 0;
+        }
+        if (Math.floor(clearance.getClearance(x, y) / Drone.MOVE_LENGTH_IN_DEGREES - RAY_MARGIN) >= maxMoves) {
+            return maxMoves;
+        }
+
+        double angleInRadians = Math.toRadians(angle);
+        double dx = Drone.MOVE_LENGTH_IN_DEGREES * Math.cos(angleInRadians);
+        double dy = Drone.MOVE_LENGTH_IN_DEGREES * Math.sin(angleInRadians);
+        double endX = x + maxMoves * dx, endY = y + maxMoves * dy;
+
+        // The distance along the ray (in moves) of the nearest side it meets
+        double nearestHit = maxMoves + 1;
+        int startColumn = getColumn(Math.min(x, endX)), endColumn = getColumn(Math.max(x, endX));
+        int startRow = getRow(Math.min(y, endY)), endRow = getRow(Math.max(y, endY));
+        for (int row = startRow; row <= endRow; row++) {
+            for (int column = startColumn; column <= endColumn; column++) {
+                int cell = row * numColumns + column;
+                for (int j = cellStarts[cell]; j < cellStarts[cell + 1]; j++) {
+                    nearestHit = Math.min(nearestHit, getRayHit(x, y, dx, dy, cellSides[j]));
+                }
+            }
+        }
+        // Move `i` (from 0) ends at `i + 1` moves along the ray, so it has to end before the nearest hit
+        return (int) Math.max(0, Math.min(maxMoves, Math.ceil(nearestHit - RAY_MARGIN) - 1));
+    }
+
+    /**
+     * Returns how far (in moves of (`dx`, `dy`)) along the ray from (`x`, `y`) it meets the side, or infinity if it
+     * doesn't. A side that the ray only just misses, or that is only just behind its start, counts as met.
+     */
+    private double getRayHit(double x, double y, double dx, double dy, int side) {
+        double sideX = x2s[side] - x1s[side], sideY = y2s[side] - y1s[side];
+        double toSideX = x1s[side] - x, toSideY = y1s[side] - y;
+        double denominator = dx * sideY - dy * sideX;
+        if (denominator != 0) {
+            double u = (toSideX * dy - toSideY * dx) / denominator;
+            double hit = (toSideX * sideY - toSideY * sideX) / denominator;
+            if (u < -RAY_MARGIN || u > 1 + RAY_MARGIN || hit <= -RAY_MARGIN) {
+                return Double.POSITIVE_INFINITY;
+            }
+            return Math.max(0, hit);
+        } else if (toSideX * dy - toSideY * dx == 0) {
+            // The side is on the ray's line, so the ray meets it at its nearest end, if it isn't behind the ray
+            double toEndX = x2s[side] - x, toEndY = y2s[side] - y;
+            double startHit = (toSideX * dx + toSideY * dy) / (dx * dx + dy * dy);
+            double endHit = (toEndX * dx + toEndY * dy) / (dx * dx + dy * dy);
+            if (Math.max(startHit, endHit) <= -RAY_MARGIN) {
+                return Double.POSITIVE_INFINITY;
+            }
+            return Math.max(0, Math.min(startHit, endHit));
+        }
+        return Double.POSITIVE_INFINITY;
+    }
+
+    /**
+     * Checks whether the line from (`x1`, `y1`) to (`x2`, `y2`) stays at least `margin` away from every side of the
+     * no-fly zones, so that the same line moved by less than `margin` doesn't intersect a side either.
+     * @return true if the line doesn't come within `margin` of a side, false otherwise.
+     */
+    public boolean isClear(double x1, double y1, double x2, double y2, double margin) {
+        if (clearance.getClearance(x1, y1) >= Math.abs(x2 - x1) + Math.abs(y2 - y1) + margin) {
+            return true;
+        }
+
+        int startColumn = getColumn(Math.min(x1, x2) - margin), endColumn = getColumn(Math.max(x1, x2) + margin);
+        int startRow = getRow(Math.min(y1, y2) - margin), endRow = getRow(Math.max(y1, y2) + margin);
+        for (int row = startRow; row <= endRow; row++) {
+            for (int column = startColumn; column <= endColumn; column++) {
+                int cell = row * numColumns + column;
+                for (int j = cellStarts[cell]; j < cellStarts[cell + 1]; j++) {
+                    int side = cellSides[j];
+                    double sideX1 = x1s[side], sideY1 = y1s[side], sideX2 = x2s[side], sideY2 = y2s[side];
+                    if (Line2D.linesIntersect(x1, y1, x2, y2, sideX1, sideY1, sideX2, sideY2)
+                            || Line2D.ptSegDist(x1, y1, x2, y2, sideX1, sideY1) < margin
+                            || Line2D.ptSegDist(x1, y1, x2, y2, sideX2, sideY2) < margin
+                            || Line2D.ptSegDist(sideX1, sideY1, sideX2, sideY2, x1, y1) < margin
+                            || Line2D.ptSegDist(sideX1, sideY1, sideX2, sideY2, x2, y2) < margin) {
+                        return false;
+                    }
+                }
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Checks whether the line from (`x1`, `y1`) to (`x2`, `y2`) intersects any side of the no-fly zones, by testing
+     * the sides in the cells its bounding box touches.
+     * @return true if the line intersects a side, false otherwise.
+     */
+    private boolean intersectsExactly(double x1, double y1, double x2, double y2) {
+        double minX = Math.min(x1, x2), maxX = Math.max(x1, x2);
+        double minY = Math.min(y1, y2), maxY = Math.max(y1, y2);
+        double maxGridX = minLongitude + numColumns * CELL_SIZE_IN_DEGREES;
+        double maxGridY = minLatitude + numRows * CELL_SIZE_IN_DEGREES;
+        if (maxX < minLongitude || minX > maxGridX || maxY < minLatitude || minY > maxGridY) {
+            // The line doesn't touch the grid, so there are no sides near it
+            return false;
+        }
+
+        int startColumn = getColumn(minX), endColumn = getColumn(maxX);
+        int startRow = getRow(minY), endRow = getRow(maxY);
+        for (int row = startRow; row <= endRow; row++) {
+            for (int column = startColumn; column <= endColumn; column++) {
+                int cell = row * numColumns + column;
+                for (int j = cellStarts[cell]; j < cellStarts[cell + 1]; j++) {
+                    int side = cellSides[j];
+                    if (Line2D.linesIntersect(x1, y1, x2, y2, x1s[side], y1s[side], x2s[side], y2s[side])) {
+                        return true;
+                    }
+                }
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Returns the column of the grid the longitude `x` is in, clamped to the grid.
+     */
+    private int getColumn(double x) {
+        int column = (int) Math.floor((x - minLongitude) / CELL_SIZE_IN_DEGREES);
+        return Math.max(0, Math.min(numColumns - 1, column));
+    }
+
+    /**
+     * Returns the row of the grid the latitude `y` is in, clamped to the grid.
+     */
+    private int getRow(double y) {
+        int row = (int) Math.floor((y - minLatitude) / CELL_SIZE_IN_DEGREES);
+        return Math.max(0, Math.min(numRows - 1, row));
+    }
+}
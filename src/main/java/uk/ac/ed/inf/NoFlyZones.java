@@ -0,0 +1,69 @@
+package uk.ac.ed.inf;
+
+import com.mapbox.geojson.Feature;
+import com.mapbox.geojson.FeatureCollection;
+import com.mapbox.geojson.Polygon;
+
+import java.awt.geom.Line2D;
+import java.awt.geom.Point2D;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Objects;
+import java.util.stream.Collectors;
+
+/**
+ * This class holds the no-fly zones the drone can't fly over. The no-fly zones are read from `DataSource.instance`
+ * when this class is first used (i.e. when one of its fields is first read), not when a `LongLat` is first created,
+ * so the data source can be chosen before they are needed and positions can be used without one.
+ * @author Vivek Raja s1864074
+ */
+public class NoFlyZones {
+
+    /**
+     * The polygons of the no-fly zones. Each polygon is given as a closed ring of vertices, i.e. the first vertex is
+     * repeated as the last vertex.
+     */
+    public static final List<List<Point2D>> POLYGONS = getPolygons();
+
+    /**
+     * The sides of all the polygons of the no-fly zones.
+     */
+    public static final List<Line2D> SIDES = getSides(POLYGONS);
+
+    /**
+     * The clearance raster of the confinement area, i.e. how far each position is from the no-fly zones.
+     */
+    public static final NoFlyZoneClearance CLEARANCE = new NoFlyZoneClearance(SIDES);
+
+    /**
+     * The grid index of the sides of the no-fly zones, used to check intersections with moves.
+     */
+    public static final NoFlyZoneIndex INDEX = new NoFlyZoneIndex(SIDES, CLEARANCE);
+
+    private NoFlyZones() {}
+
+    private static List<List<Point2D>> getPolygons() {
+        List<Feature> features = FeatureCollection.fromJson(DataSource.instance.getNoFlyZones()).features();
+        ArrayList<List<Point2D>> polygons = new ArrayList<>();
+        for (Feature feature : features) {
+            polygons.add(getPolygonVertices(feature));
+        }
+        return polygons;
+    }
+
+    private static List<Point2D> getPolygonVertices(Feature feature) {
+        var polygon = (Polygon) feature.geometry();
+        return Objects.requireNonNull(polygon).coordinates().get(0).stream()
+                .map(pt -> new Point2D.Double(pt.longitude(), pt.latitude())).collect(Collectors.toList());
+    }
+
+    private static List<Line2D> getSides(List<List<Point2D>> polygons) {
+        ArrayList<Line2D> sides = new ArrayList<>();
+        for (List<Point2D> points : polygons) {
+            for (int i = 0; i < points.size() - 1; i++) {
+                sides.add(new Line2D.Double(points.get(i), points.get(i + 1)));
+            }
+        }
+        return sides;
+    }
+}
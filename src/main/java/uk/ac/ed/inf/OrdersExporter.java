@@ -0,0 +1,54 @@
+package uk.ac.ed.inf;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+
+/**
+ * Dumps the orders in the database to the file `LocalDataSource` reads them from. The dump only has to be made again
+ * when the orders in the database change.
+ * Usage: `OrdersExporter <database port> [output file]`. The output file defaults to `database/orders.tsv`.
+ * @author Vivek Raja s1864074
+ */
+public class OrdersExporter {
+
+    public static void main(String[] args) {
+        if (args.length < 1) {
+            System.out.println("Usage: OrdersExporter <database port> [output file]");
+            System.exit(1);
+        }
+        int databasePort = Integer.parseInt(args[0]);
+        Path outputFile = Path.of(args.length > 1 ? args[1] : "database/orders.tsv");
+
+        String databaseURL = String.format("jdbc:derby://localhost:%d/derbyDB", databasePort);
+        int numRows = 0;
+        try (Connection conn = DriverManager.getConnection(databaseURL);
+             Statement statement = conn.createStatement()) {
+            Files.createDirectories(outputFile.getParent());
+            // The same query as `DBClient` uses for the orders, over every date
+            ResultSet rs = statement.executeQuery("SELECT o.orderNo, o.deliveryDate, o.customer, o.deliverTo, " +
+                    "d.item FROM orders o LEFT JOIN orderDetails d ON o.orderNo = d.orderNo");
+            try (BufferedWriter writer = Files.newBufferedWriter(outputFile, StandardCharsets.UTF_8)) {
+                while (rs.next()) {
+                    String item = rs.getString("item");
+                    writer.write(String.join("\t", rs.getString("orderNo"),
+                            rs.getDate("deliveryDate").toLocalDate().toString(), rs.getString("customer"),
+                            rs.getString("deliverTo"), item == null ? "" : item));
+                    writer.newLine();
+                    numRows++;
+                }
+            }
+        } catch (SQLException | IOException e) {
+            e.printStackTrace();
+            System.exit(1);
+        }
+        System.out.println("Exported " + numRows + " rows to " + outputFile + ".");
+    }
+}
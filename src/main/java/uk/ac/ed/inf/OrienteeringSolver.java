@@ -0,0 +1,129 @@
+package uk.ac.ed.inf;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * A route solver that picks the orders to deliver, and the order to deliver them in, so that the total delivery cost
+ * of the orders delivered is as high as possible within the `Drone.MAX_MOVES` moves of the day. This is an
+ * orienteering problem, which is solved with a fast heuristic on the same tour of orders as `HeuristicRouteSolver`:
+ *   - The route is built by repeatedly inserting the order with the highest delivery cost per move it adds to the
+ *     route, where it adds the fewest moves, for as long as an order fits.
+ *   - The route is shortened with 2-opt and or-opt moves, and more orders are inserted into the moves saved.
+ *   - An order left out is swapped in for an order in the route with a lower delivery cost, if it fits in the moves
+ *     freed by removing that order. This is repeated until no swap delivers more.
+ * @author Vivek Raja s1864074
+ */
+public class OrienteeringSolver implements RouteSolver {
+
+    /**
+     * Finds the orders to deliver, and the order to deliver them in, that deliver the highest total delivery cost.
+     * @param start the start position of the drone, which it returns to at the end of the day.
+     * @param orders the orders the drone has to try to deliver.
+     * @return The orders to deliver, each of them once, in the order to deliver them in.
+     */
+    @Override
+    public List<Order> solve(LongLat start, List<Order> orders) {
+        int numOrders = orders.size();
+        int[][] costs = HeuristicRouteSolver.getCosts(start, orders);
+        int[] values = new int[numOrders];
+        for (int order = 0; order < numOrders; order++) {
+            values[order] = orders.get(order).getDeliveryCost();
+        }
+
+        // The tour is the start, the orders in the route and then the start again, and the start is `numOrders`
+        int[] tour = new int[numOrders + 2];
+        boolean[] isRouted = new boolean[numOrders];
+        tour[0] = numOrders;
+        tour[1] = numOrders;
+        int routeLength = insertByValue(tour, 0, isRouted, values, costs);
+        do {
+            HeuristicRouteSolver.improve(tour, routeLength, costs);
+            routeLength = insertByValue(tour, routeLength, isRouted, values, costs);
+        } while (swapForHigherValue(tour, routeLength, isRouted, values, costs));
+
+        List<Order> route = new ArrayList<>(routeLength);
+        for (int i = 1; i <= routeLength; i++) {
+            route.add(orders.get(tour[i]));
+        }
+        return route;
+    }
+
+    /**
+     * Inserts the orders left out into the tour, the order with the highest value per move it adds first, for as long
+     * as an order fits in the moves of the day.
+     * @return The new number of orders in the tour.
+     */
+    private static int insertByValue(int[] tour, int routeLength, boolean[] isRouted, int[] values, int[][] costs) {
+        int totalCost = HeuristicRouteSolver.getTourCost(tour, routeLength, costs);
+        while (true) {
+            int bestOrder = -1;
+            int bestPosition = -1;
+            int bestExtraCost = 0;
+            double bestValuePerMove = 0;
+            for (int order = 0; order < isRouted.length; order++) {
+                if (isRouted[order]) {
+                    continue;
+                }
+                int position = HeuristicRouteSolver.getCheapestPosition(tour, routeLength, order, costs);
+                int extraCost = HeuristicRouteSolver.getInsertionCost(tour, position, order, costs);
+                double valuePerMove = (double) values[order] / Math.max(1, extraCost);
+                if (totalCost + extraCost < Drone.MAX_MOVES && valuePerMove > bestValuePerMove) {
+                    bestOrder = order;
+                    bestPosition = position;
+                    bestExtraCost = extraCost;
+                    bestValuePerMove = valuePerMove;
+                }
+            }
+            if (bestOrder == -1) {
+                return routeLength;
+            }
+            HeuristicRouteSolver.insert(tour, routeLength++, bestPosition, bestOrder);
+            isRouted[bestOrder] = true;
+            totalCost += bestExtraCost;
+        }
+    }
+
+    /**
+     * Makes the first swap of an order in the tour for an order left out with a higher value that fits in the moves
+     * of the day, trying the orders left out from the highest value.
+     * @return true if a swap was made.
+     */
+    private static boolean swapForHigherValue(int[] tour, int routeLength, boolean[] isRouted, int[] values,
+                                              int[][] costs) {
+        int totalCost = HeuristicRouteSolver.getTourCost(tour, routeLength, costs);
+        int[] candidate = new int[tour.length];
+
+        List<Integer> ordersLeftOut = new ArrayList<>();
+        for (int order = 0; order < isRouted.length; order++) {
+            if (!isRouted[order]) {
+                ordersLeftOut.add(order);
+            }
+        }
+        ordersLeftOut.sort((a, b) -> Integer.compare(values[b], values[a]));
+
+        for (int order : ordersLeftOut) {
+            for (int i = 1; i <= routeLength; i++) {
+                int removed = tour[i];
+                if (values[removed] >= values[order]) {
+                    continue;
+                }
+                int removalSaving = costs[tour[i - 1]][removed] + costs[removed][tour[i + 1]]
+                        - costs[tour[i - 1]][tour[i + 1]];
+
+                System.arraycopy(tour, 0, candidate, 0, routeLength + 2);
+                HeuristicRouteSolver.remove(candidate, routeLength, i);
+                int position = HeuristicRouteSolver.getCheapestPosition(candidate, routeLength - 1, order, costs);
+                int extraCost = HeuristicRouteSolver.getInsertionCost(candidate, position, order, costs);
+                if (totalCost - removalSaving + extraCost < Drone.MAX_MOVES) {
+                    HeuristicRouteSolver.insert(candidate, routeLength - 1, position, order);
+                    System.arraycopy(candidate, 0, tour, 0, routeLength + 2);
+                    isRouted[removed] = false;
+                    isRouted[order] = true;
+                    return true;
+                }
+            }
+        }
+        return false;
+    }
+}
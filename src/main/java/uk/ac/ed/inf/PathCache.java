@@ -0,0 +1,214 @@
+package uk.ac.ed.inf;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+
+/**
+ * A least recently used cache of the paths found between two positions. The paths between the shops, delivery points
+ * and Appleton Tower are the same every time they are flown, so they only have to be found once.
+ * The positions are quantised to `KEY_RESOLUTION_IN_DEGREES` so that legs which start from slightly different
+ * positions near the same stop share an entry. A path is stored as the angles of its moves, and when it is looked up
+ * the moves are made again from the actual start position and checked, so a cached path is only returned if it is
+ * still valid and still ends close to the destination.
+ * The cache can be saved to and loaded from a file, so that a run on one day can start with the paths found on the
+ * previous day.
+ * @author Vivek Raja s1864074
+ */
+public class PathCache {
+
+    /**
+     * The default maximum number of paths kept in the cache.
+     */
+    public static final int DEFAULT_CAPACITY = 4096;
+
+    /**
+     * The cache of paths used by the drone.
+     */
+    public static PathCache instance = new PathCache(DEFAULT_CAPACITY);
+
+    /**
+     * The size (in degrees) of the squares positions are quantised to.
+     */
+    private static final double KEY_RESOLUTION_IN_DEGREES = Drone.MOVE_LENGTH_IN_DEGREES / 2;
+
+    /**
+     * The cached paths, in order of least recently used to most recently used.
+     */
+    private final LinkedHashMap<Key, int[]> paths;
+
+    /**
+     * Instantiates an empty cache.
+     * @param capacity the maximum number of paths kept in the cache. The least recently used path is evicted when
+     *                 a path is added to a full cache.
+     */
+    public PathCache(int capacity) {
+        this.paths = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<Key, int[]> eldest) {
+                return size() > capacity;
+            }
+        };
+    }
+
+    /**
+     * Returns the cached path from `from` to close to `dest`.
+     * @param from the position to start the path from.
+     * @param dest the position to go to.
+     * @param order the order to associate the moves with.
+     * @return A new list of moves if a valid path is cached, else null.
+     */
+    public synchronized List<Move> get(LongLat from, LongLat dest, Order order) {
+        int[] angles = paths.get(new Key(from, dest));
+        if (angles == null) {
+            return null;
+        }
+
+        ArrayList<Move> moves = new ArrayList<>(angles.length);
+        LongLat pos = from;
+        for (int angle : angles) {
+            Move move = new Move(pos, angle, order);
+            if (!move.isValid()) {
+                return null;
+            }
+            moves.add(move);
+            pos = move.getDest();
+        }
+        return pos.closeTo(dest) ? moves : null;
+    }
+
+    /**
+     * Returns the number of moves of the cached path from `from` to close to `dest`. Unlike `get`, the path is not
+     * checked, so this should only be used where an estimate of the cost of a leg is enough.
+     * @return The number of moves of the cached path, or -1 if no path is cached.
+     */
+    public synchronized int getMoveCount(LongLat from, LongLat dest) {
+        int[] angles = paths.get(new Key(from, dest));
+        return angles == null ? -1 : angles.length;
+    }
+
+    /**
+     * Adds the path from `from` to close to `dest` to the cache.
+     * @param from the position the path starts from.
+     * @param dest the position the path goes to.
+     * @param moves the moves of the path.
+     */
+    public synchronized void put(LongLat from, LongLat dest, List<Move> moves) {
+        int[] angles = new int[moves.size()];
+        for (int i = 0; i < angles.length; i++) {
+            angles[i] = moves.get(i).getAngle();
+        }
+        paths.put(new Key(from, dest), angles);
+    }
+
+    /**
+     * @return The number of paths in the cache.
+     */
+    public synchronized int size() {
+        return paths.size();
+    }
+
+    /**
+     * Removes all the paths from the cache.
+     */
+    public synchronized void clear() {
+        paths.clear();
+    }
+
+    /**
+     * Adds the paths saved in `file` by `save` to the cache. Nothing is loaded if the file doesn't exist.
+     * @param file the file to load the paths from.
+     */
+    public synchronized void load(Path file) {
+        if (!Files.exists(file)) {
+            return;
+        }
+        try (BufferedReader reader = Files.newBufferedReader(file)) {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                String[] fields = line.split(" ");
+                if (fields.length < 4) {
+                    continue;
+                }
+                Key key = new Key(Long.parseLong(fields[0]), Long.parseLong(fields[1]),
+                        Long.parseLong(fields[2]), Long.parseLong(fields[3]));
+                int[] angles = new int[fields.length - 4];
+                for (int i = 0; i < angles.length; i++) {
+                    angles[i] = Integer.parseInt(fields[i + 4]);
+                }
+                paths.put(key, angles);
+            }
+        } catch (IOException | NumberFormatException e) {
+            System.err.println("Unable to load the path cache from " + file + ". Error message: " + e.getMessage() + ".");
+        }
+    }
+
+    /**
+     * Saves the paths in the cache to `file`, one path per line.
+     * @param file the file to save the paths to.
+     */
+    public synchronized void save(Path file) {
+        try (BufferedWriter writer = Files.newBufferedWriter(file)) {
+            for (Map.Entry<Key, int[]> entry : paths.entrySet()) {
+                Key key = entry.getKey();
+                StringBuilder line = new StringBuilder();
+                line.append(key.fromX).append(' ').append(key.fromY).append(' ')
+                        .append(key.destX).append(' ').append(key.destY);
+                for (int angle : entry.getValue()) {
+                    line.append(' ').append(angle);
+                }
+                writer.write(line.toString());
+                writer.newLine();
+            }
+        } catch (IOException e) {
+            System.err.println("Unable to save the path cache to " + file + ". Error message: " + e.getMessage() + ".");
+        }
+    }
+
+    /**
+     * The quantised start and end positions of a path.
+     */
+    private static final class Key {
+        private final long fromX;
+        private final long fromY;
+        private final long destX;
+        private final long destY;
+
+        private Key(LongLat from, LongLat dest) {
+            this(quantise(from.longitude), quantise(from.latitude), quantise(dest.longitude), quantise(dest.latitude));
+        }
+
+        private Key(long fromX, long fromY, long destX, long destY) {
+            this.fromX = fromX;
+            this.fromY = fromY;
+            this.destX = destX;
+            this.destY = destY;
+        }
+
+        private static long quantise(double degrees) {
+            return Math.round(degrees / KEY_RESOLUTION_IN_DEGREES);
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o)
+                return true;
+            if (o == null || getClass() != o.getClass())
+                return false;
+            Key other = (Key) o;
+            return fromX == other.fromX && fromY == other.fromY && destX == other.destX && destY == other.destY;
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(fromX, fromY, destX, destY);
+        }
+    }
+}
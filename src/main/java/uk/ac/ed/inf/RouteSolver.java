@@ -0,0 +1,19 @@
+package uk.ac.ed.inf;
+
+import java.util.List;
+
+/**
+ * Finds the order a drone delivers the orders of a day in. The drone delivers each order before it picks up the next
+ * one, and orders that don't fit in the moves of the day can be left out of the route.
+ * @author Vivek Raja s1864074
+ */
+public interface RouteSolver {
+
+    /**
+     * Finds the order to deliver the orders in.
+     * @param start the start position of the drone, which it returns to at the end of the day.
+     * @param orders the orders the drone has to try to deliver.
+     * @return The orders to deliver, each of them once, in the order to deliver them in.
+     */
+    List<Order> solve(LongLat start, List<Order> orders);
+}
@@ -0,0 +1,80 @@
+package uk.ac.ed.inf;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * A data source that gets the menus, no-fly zones and what three words details from the webserver, and the orders
+ * from the database. The connection to the database is only made when the orders are first needed.
+ * @author Vivek Raja s1864074
+ */
+public class ServerDataSource extends DataSource {
+
+    /**
+     * The client used to make requests to the webserver.
+     */
+    private final WebServerClient webServerClient;
+
+    /**
+     * The host of the database.
+     */
+    private final String databaseHost;
+
+    /**
+     * The port of the database on `databaseHost`.
+     */
+    private final int databasePort;
+
+    /**
+     * The client used to read the orders, or null if the orders haven't been needed yet.
+     */
+    private DBClient dbClient;
+
+    /**
+     * Instantiates a ServerDataSource object. No requests are made until the data is needed.
+     * @param webServerHost The machine that hosts the webserver.
+     * @param webServerPort The port the webserver on the host is running on.
+     * @param databaseHost The machine that hosts the database.
+     * @param databasePort The port the database on the host is running on.
+     */
+    public ServerDataSource(String webServerHost, int webServerPort, String databaseHost, int databasePort) {
+        this.webServerClient = new WebServerClient(webServerHost, webServerPort);
+        this.databaseHost = databaseHost;
+        this.databasePort = databasePort;
+    }
+
+    @Override
+    public String getMenus() {
+        return webServerClient.get(MENUS_PATH);
+    }
+
+    @Override
+    public String getNoFlyZones() {
+        return webServerClient.get(NO_FLY_ZONES_PATH);
+    }
+
+    @Override
+    public String getW3WDetails(String words) {
+        return webServerClient.get(getW3WDetailsPath(words));
+    }
+
+    @Override
+    public CompletableFuture<String> getW3WDetailsAsync(String words) {
+        return webServerClient.getAsync(getW3WDetailsPath(words));
+    }
+
+    /**
+     * Returns the orders of every day from `firstDate` to `lastDate` (inclusive). The orders and their items are
+     * fetched with a single query. Orders are read with one connection, so reads from several threads are made one
+     * at a time.
+     */
+    @Override
+    public synchronized Map<LocalDate, ArrayList<Order>> getOrders(LocalDate firstDate, LocalDate lastDate) {
+        if (dbClient == null) {
+            dbClient = new DBClient(databaseHost, databasePort);
+        }
+        return dbClient.getOrders(firstDate, lastDate);
+    }
+}
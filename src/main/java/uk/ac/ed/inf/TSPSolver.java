@@ -1,21 +1,76 @@
 package uk.ac.ed.inf;
 
+import java.time.Duration;
+import java.util.ArrayList;
 import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.Map;
+import java.util.function.Consumer;
 import java.util.stream.Collectors;
+import java.util.stream.IntStream;
 
+import com.graphhopper.jsprit.core.algorithm.SearchStrategy;
 import com.graphhopper.jsprit.core.algorithm.box.Jsprit;
+import com.graphhopper.jsprit.core.algorithm.listener.IterationEndsListener;
+import com.graphhopper.jsprit.core.algorithm.termination.PrematureAlgorithmTermination;
+import com.graphhopper.jsprit.core.algorithm.termination.TimeTermination;
 import com.graphhopper.jsprit.core.problem.Location;
 import com.graphhopper.jsprit.core.problem.VehicleRoutingProblem;
 import com.graphhopper.jsprit.core.problem.job.Shipment;
 import com.graphhopper.jsprit.core.problem.solution.VehicleRoutingProblemSolution;
+import com.graphhopper.jsprit.core.problem.solution.route.VehicleRoute;
 import com.graphhopper.jsprit.core.problem.solution.route.activity.TourActivity;
 import com.graphhopper.jsprit.core.problem.vehicle.VehicleImpl;
 import com.graphhopper.jsprit.core.problem.vehicle.VehicleType;
 import com.graphhopper.jsprit.core.problem.vehicle.VehicleTypeImpl;
 import com.graphhopper.jsprit.core.util.Solutions;
+import com.graphhopper.jsprit.core.util.VehicleRoutingTransportCostsMatrix;
 
-public class TSPSolver {
+/**
+ * Finds the order to deliver the orders in with the jsprit vehicle routing library.
+ * @author Vivek Raja s1864074
+ */
+public class TSPSolver implements RouteSolver {
+
+    /**
+     * The cost given to jsprit for a leg that the drone can't fly, which is more than a drone can fly in a day.
+     */
+    private static final double UNREACHABLE_COST = 2 * Drone.MAX_MOVES;
+
+    /**
+     * The number of iterations jsprit runs for when the solver isn't given a time budget.
+     */
+    private static final int DEFAULT_MAX_ITERATIONS = 512;
+
+    /**
+     * The longest time `solve` spends finding a route, or null if jsprit is run for `DEFAULT_MAX_ITERATIONS`
+     * iterations instead.
+     */
+    private final Duration timeBudget;
+
+    /**
+     * The number of iterations without a better route after which `solve` stops, if it has a time budget.
+     */
+    private final int maxIterationsWithoutImprovement;
+
+    /**
+     * Instantiates a solver that runs jsprit for a fixed number of iterations, so its routes are reproducible.
+     */
+    public TSPSolver() {
+        this(null, 0);
+    }
+
+    /**
+     * Instantiates a solver that runs jsprit in its anytime mode (see the time budgeted `solveForOrders`).
+     * @param timeBudget the longest time to spend finding a route.
+     * @param maxIterationsWithoutImprovement the number of iterations without a better route after which to stop.
+     */
+    public TSPSolver(Duration timeBudget, int maxIterationsWithoutImprovement) {
+        this.timeBudget = timeBudget;
+        this.maxIterationsWithoutImprovement = maxIterationsWithoutImprovement;
+    }
 
     /**
      * Finds the most optimal path to deliver the orders in.
@@ -24,23 +79,243 @@ public class TSPSolver {
      *   - We map orders to a 0 to 1 scale based on their total delivery cost (1 being the most costly order)
      *   - We then map the 0 to 10 and 1 to 1 using the linear equation y = -9x + 10 where x is the order value on
      *     the 0 to 1 scale.
+     * The costs of the legs between the stops are the number of moves the drone needs to fly them (see
+     * `buildProblem`), so an order that doesn't fit in the drone's moves for the day is left out.
      * @param start the start position of the drone
      * @param orders the list of orders the drone has to try to deliver
      * @return The list of orders in order of most optimal path (taking into account order value)
      */
     public static List<Order> solveForOrders(LongLat start, List<Order> orders) {
+        VehicleRoutingProblem problem = buildProblem(List.of(start), 1, orders);
+
+        // Get the best route
+        var algorithm = Jsprit.createAlgorithm(problem);
+        algorithm.setMaxIterations(DEFAULT_MAX_ITERATIONS);
+        return toRoute(Solutions.bestOf(algorithm.searchSolutions()), orders);
+    }
+
+    /**
+     * Finds the most optimal path to deliver the orders in with `solveForOrders`, within the time budget of the solver
+     * if it has one.
+     * @param start the start position of the drone.
+     * @param orders the orders the drone has to try to deliver.
+     * @return The orders in order of most optimal path, each of them once.
+     */
+    @Override
+    public List<Order> solve(LongLat start, List<Order> orders) {
+        if (orders.isEmpty()) {
+            return new ArrayList<>();
+        }
+        List<Order> route = timeBudget == null ? solveForOrders(start, orders)
+                : solveForOrders(start, orders, timeBudget, maxIterationsWithoutImprovement, bestRoute -> {});
+        // The route has each order twice (for its pick up and its delivery), so only its first visit is kept
+        return new ArrayList<>(new LinkedHashSet<>(route));
+    }
+
+    /**
+     * Finds the most optimal path to deliver the orders in, prioritising the orders in the same way as
+     * `solveForOrders`, within a time budget. jsprit is run until the time budget runs out or until the best route
+     * hasn't improved for `maxIterationsWithoutImprovement` iterations, so a small day stops as soon as its route
+     * stops improving and a large day doesn't take longer than the budget. The time budget includes finding the
+     * number of moves of the legs between the stops.
+     * Each time jsprit finds a better route it is given to `bestRouteListener`, so the drone can start flying the
+     * first legs of the route while the rest of it is still being improved.
+     * @param start the start position of the drone
+     * @param orders the list of orders the drone has to try to deliver
+     * @param timeBudget the longest time to spend finding the route.
+     * @param maxIterationsWithoutImprovement the number of iterations without a better route after which to stop.
+     * @param bestRouteListener called on the solver's thread with the best route found so far, each time a better
+     *                          route is found. The routes are in the same form as the route returned.
+     * @return The list of orders in order of most optimal path (taking into account order value)
+     */
+    public static List<Order> solveForOrders(LongLat start, List<Order> orders, Duration timeBudget,
+                                             int maxIterationsWithoutImprovement,
+                                             Consumer<List<Order>> bestRouteListener) {
+        long startTime = System.nanoTime();
+        VehicleRoutingProblem problem = buildProblem(List.of(start), 1, orders);
+        Duration remainingTime = timeBudget.minusNanos(System.nanoTime() - startTime);
+
+        var algorithm = Jsprit.createAlgorithm(problem);
+        algorithm.setMaxIterations(Integer.MAX_VALUE);
+        TimeTermination timeTermination = new TimeTermination(Math.max(0, remainingTime.toMillis()));
+        algorithm.addListener(timeTermination);
+        algorithm.addTerminationCriterion(timeTermination);
+        BestSolutionListener bestSolutionListener = new BestSolutionListener(maxIterationsWithoutImprovement,
+                solution -> bestRouteListener.accept(toRoute(solution, orders)));
+        algorithm.addListener(bestSolutionListener);
+        algorithm.addTerminationCriterion(bestSolutionListener);
+        return toRoute(Solutions.bestOf(algorithm.searchSolutions()), orders);
+    }
+
+    /**
+     * Returns the orders in the order they are picked up and delivered in the solution of a single drone.
+     * @param solution the solution of the problem built by `buildProblem`.
+     * @param orders the orders the problem was built from.
+     * @return The order of each activity of the route.
+     */
+    private static List<Order> toRoute(VehicleRoutingProblemSolution solution, List<Order> orders) {
+        List<TourActivity> bestRoute = solution.getRoutes().stream()
+                .findFirst()
+                .map(VehicleRoute::getActivities)
+                .orElse(List.of());
+
+        // The best route consists of a set of Activity objects (2 per order - 1 to pick up the order, 1 to drop off the
+        // order). Thus, we map through the activities and get the order associated with the activity by dividing the
+        // index of the activity by 2 (we also subtract 1 as the activities index starts at 1).
+        return bestRoute.stream().map(a -> orders.get((a.getIndex() - 1)/2)).collect(Collectors.toList());
+    }
+
+    /**
+     * Splits the orders between a fleet of drones and finds the most optimal path for each drone to deliver its orders
+     * in. The orders are prioritised in the same way as `solveForOrders`.
+     * Drone `i` starts from (and returns to) `depots.get(i % depots.size())`, so the drones are spread evenly over the
+     * depots. An order that doesn't fit in one drone's moves for the day is given to another drone, or left out if
+     * there's no room for it in any drone's route.
+     * @param depots the positions the drones start from.
+     * @param numDrones the number of drones in the fleet.
+     * @param orders the list of orders the drones have to try to deliver.
+     * @return The orders of each drone, in order of most optimal path. Orders that were left out aren't in any route.
+     */
+    public static List<List<Order>> solveForFleet(List<LongLat> depots, int numDrones, List<Order> orders) {
+        VehicleRoutingProblem problem = buildProblem(depots, numDrones, orders);
+
+        var algorithm = Jsprit.createAlgorithm(problem);
+        algorithm.setMaxIterations(DEFAULT_MAX_ITERATIONS);
+        VehicleRoutingProblemSolution solution = Solutions.bestOf(algorithm.searchSolutions());
+
+        List<List<Order>> routes = new ArrayList<>();
+        for (int droneId = 0; droneId < numDrones; droneId++) {
+            routes.add(new ArrayList<>());
+        }
+        for (VehicleRoute route : solution.getRoutes()) {
+            // Each order has a pickup and a delivery activity, so only the first of them is kept
+            LinkedHashSet<Order> routeOrders = new LinkedHashSet<>();
+            for (TourActivity activity : route.getActivities()) {
+                routeOrders.add(orders.get((activity.getIndex() - 1) / 2));
+            }
+            routes.get(Integer.parseInt(route.getVehicle().getId())).addAll(routeOrders);
+        }
+        return routes;
+    }
+
+    /**
+     * Builds the jsprit problem of delivering the orders with `numDrones` drones, where drone `i` starts from (and
+     * returns to) `depots.get(i % depots.size())`.
+     * Each order is a shipment that is picked up from its shops and delivered to its delivery point. The shipment of
+     * order `i` is picked up at location `pickup-i`, which is entered at the order's first shop and left at its last
+     * shop, and is delivered at location `delivery-i`. The costs and times of the legs between the locations are the
+     * number of moves the drone needs to fly them, and the hovering moves at the stops and the leg between the shops
+     * are the service times, so the latest a drone can get back to its depot is `Drone.MAX_MOVES`.
+     * A drone delivers an order before it picks up the next one, so it can only carry one order at a time.
+     * @param depots the positions the drones start from.
+     * @param numDrones the number of drones.
+     * @param orders the list of orders the drones have to try to deliver.
+     * @return The problem.
+     */
+    private static VehicleRoutingProblem buildProblem(List<LongLat> depots, int numDrones, List<Order> orders) {
+        Map<LongLat, Integer> positionIndices = getPositionIndices(depots, orders);
+        int[][] moveCounts = getMoveCounts(new ArrayList<>(positionIndices.keySet()));
 
-        // Create a vehicle
-        VehicleType vehicleType = VehicleTypeImpl.Builder.newInstance("drone").build();
-        VehicleImpl vehicle = VehicleImpl.Builder.newInstance("drone")
-                .setStartLocation(loc(start))
-                .setReturnToDepot(true)
-                .setType(vehicleType)
-                .build();
+        // The location ids of the problem, with the positions each location is entered and left at
+        List<String> locationIds = new ArrayList<>();
+        List<Integer> entries = new ArrayList<>();
+        List<Integer> exits = new ArrayList<>();
+        for (int i = 0; i < depots.size(); i++) {
+            locationIds.add("depot-" + i);
+            entries.add(positionIndices.get(depots.get(i)));
+            exits.add(positionIndices.get(depots.get(i)));
+        }
+        for (int i = 0; i < orders.size(); i++) {
+            Order order = orders.get(i);
+            List<Shop> shops = order.getShops();
+            locationIds.add("pickup-" + i);
+            entries.add(positionIndices.get(shops.get(0).locationInLongLat));
+            exits.add(positionIndices.get(shops.get(shops.size() - 1).locationInLongLat));
+            locationIds.add("delivery-" + i);
+            entries.add(positionIndices.get(order.getDeliverToInLongLat()));
+            exits.add(positionIndices.get(order.getDeliverToInLongLat()));
+        }
+
+        VehicleRoutingTransportCostsMatrix.Builder costsBuilder = VehicleRoutingTransportCostsMatrix.Builder
+                .newInstance(false);
+        for (int from = 0; from < locationIds.size(); from++) {
+            for (int to = 0; to < locationIds.size(); to++) {
+                int moveCount = moveCounts[exits.get(from)][entries.get(to)];
+                double cost = moveCount == Integer.MAX_VALUE ? UNREACHABLE_COST : moveCount;
+                costsBuilder.addTransportDistance(locationIds.get(from), locationIds.get(to), cost);
+                costsBuilder.addTransportTime(locationIds.get(from), locationIds.get(to), cost);
+            }
+        }
+
+        VehicleType vehicleType = VehicleTypeImpl.Builder.newInstance("drone").addCapacityDimension(0, 1).build();
+        VehicleRoutingProblem.Builder vrpBuilder = VehicleRoutingProblem.Builder.newInstance()
+                .setFleetSize(VehicleRoutingProblem.FleetSize.FINITE)
+                .setRoutingCost(costsBuilder.build());
+        for (int droneId = 0; droneId < numDrones; droneId++) {
+            vrpBuilder.addVehicle(VehicleImpl.Builder.newInstance(Integer.toString(droneId))
+                    .setStartLocation(Location.newInstance("depot-" + droneId % depots.size()))
+                    .setReturnToDepot(true)
+                    .setLatestArrival(Drone.MAX_MOVES)
+                    .setType(vehicleType)
+                    .build());
+        }
+
+        int[] priorities = getPriorities(orders);
+        for (int i = 0; i < orders.size(); i++) {
+            var order = orders.get(i);
+
+            // The drone hovers at each shop and flies between the shops while picking the order up
+            List<Shop> shops = order.getShops();
+            double pickupTime = shops.size();
+            for (int s = 1; s < shops.size(); s++) {
+                int moveCount = moveCounts[positionIndices.get(shops.get(s - 1).locationInLongLat)]
+                        [positionIndices.get(shops.get(s).locationInLongLat)];
+                pickupTime += moveCount == Integer.MAX_VALUE ? UNREACHABLE_COST : moveCount;
+            }
+
+            vrpBuilder.addJob(Shipment.Builder.newInstance(Integer.toString(i))
+                    .setPickupLocation(Location.newInstance("pickup-" + i))
+                    .setPickupServiceTime(pickupTime)
+                    .setDeliveryLocation(Location.newInstance("delivery-" + i))
+                    .setDeliveryServiceTime(1)
+                    .addSizeDimension(0, 1)
+                    .setPriority(priorities[i])
+                    .build());
+        }
+        return vrpBuilder.build();
+    }
 
-        // Create a vehicle routing problem and add the vehicle
-        VehicleRoutingProblem.Builder vrpBuilder = VehicleRoutingProblem.Builder.newInstance().addVehicle(vehicle);
+    /**
+     * Returns every position a leg of the drones can start or end at, so that the move counts between them can be
+     * found up front with `getMoveCounts`.
+     * @param depots the positions the drones start from.
+     * @param orders the orders the drones have to try to deliver.
+     * @return The index of each depot, shop and delivery point, in order of first appearance.
+     */
+    static Map<LongLat, Integer> getPositionIndices(List<LongLat> depots, List<Order> orders) {
+        Map<LongLat, Integer> positionIndices = new LinkedHashMap<>();
+        for (LongLat depot : depots) {
+            positionIndices.putIfAbsent(depot, positionIndices.size());
+        }
+        for (Order order : orders) {
+            for (Shop shop : order.getShops()) {
+                positionIndices.putIfAbsent(shop.locationInLongLat, positionIndices.size());
+            }
+            positionIndices.putIfAbsent(order.getDeliverToInLongLat(), positionIndices.size());
+        }
+        return positionIndices;
+    }
 
+    /**
+     * Returns the priority of each order, based on the following:
+     *   - The library uses 1 to 10 for highest to lowest priority.
+     *   - We map orders to a 0 to 1 scale based on their total delivery cost (1 being the most costly order)
+     *   - We then map the 0 to 10 and 1 to 1 using the linear equation y = -9x + 10 where x is the order value on
+     *     the 0 to 1 scale.
+     * @param orders the orders to prioritise.
+     * @return The priority of each order, from 1 (highest priority) to 10.
+     */
+    static int[] getPriorities(List<Order> orders) {
         // Get max delivery cost to map the orders to a 0 to 1 scale.
         int maxDeliveryCost = 0;
         for (Order o : orders) {
@@ -50,45 +325,75 @@ public class TSPSolver {
             }
         }
 
+        int[] priorities = new int[orders.size()];
         for (int i = 0; i < orders.size(); i++) {
-            var order = orders.get(i);
-
             // Map the order value to the 0 to 1 (highest priority) scale
-            double orderValue = (double)order.getDeliveryCost() / (double) maxDeliveryCost;
+            double orderValue = (double) orders.get(i).getDeliveryCost() / (double) maxDeliveryCost;
             // Finally, map the value to a 1 (highest priority) to 10 scale which the jsprit library uses
-            int priority = (int) (-9 * orderValue + 10);
-
-            var firstShopLoc = loc(order.getShops().get(0).locationInLongLat);
-
-            // Create a shipment from the first shop to where it needs to be delivered
-            // Note that the second shop IS NOT taken into account when finding the optimal path for the orders
-            vrpBuilder.addJob(Shipment.Builder.newInstance(Integer.toString(i))
-                    .setPickupLocation(firstShopLoc)
-                    .setDeliveryLocation(loc(order.getDeliverToInLongLat()))
-                    .setPriority(priority)
-                    .build());
+            priorities[i] = (int) (-9 * orderValue + 10);
         }
-        VehicleRoutingProblem problem = vrpBuilder.build();
-
-
-        // Get the best route
-        var algorithm = Jsprit.createAlgorithm(problem);
-        algorithm.setMaxIterations(512);
-        Collection<VehicleRoutingProblemSolution> solutions = algorithm.searchSolutions();
-        List<TourActivity> bestRoute = Solutions.bestOf(solutions).getRoutes().iterator().next().getActivities();
+        return priorities;
+    }
 
-        // The best route consists of a set of Activity objects (2 per order - 1 to pick up the order, 1 to drop off the
-        // order). Thus, we map through the activities and get the order associated with the activity by dividing the
-        // index of the activity by 2 (we also subtract 1 as the activities index starts at 1).
-        return bestRoute.stream().map(a -> orders.get((a.getIndex() - 1)/2)).collect(Collectors.toList());
+    /**
+     * Returns the number of moves the drone needs to fly between each pair of positions, or `Integer.MAX_VALUE` if
+     * it can't fly between them. The legs are found in parallel, and the legs already in the path cache aren't
+     * searched for again.
+     * @param positions the positions to find the move counts between.
+     * @return The move counts, where `moveCounts[i][j]` is the number of moves from `positions.get(i)` to close to
+     *         `positions.get(j)`.
+     */
+    static int[][] getMoveCounts(List<LongLat> positions) {
+        int numPositions = positions.size();
+        int[][] moveCounts = new int[numPositions][numPositions];
+        IntStream.range(0, numPositions * numPositions).parallel().forEach(leg -> {
+            int from = leg / numPositions;
+            int to = leg % numPositions;
+            if (from != to) {
+                moveCounts[from][to] = Drone.getMoveCountTo(positions.get(to), positions.get(from));
+            }
+        });
+        return moveCounts;
     }
 
     /**
-     * Returns the equivalent jsprit.core.problem.Location object of a LongLat object.
-     * @param pos The LongLat object to convert.
-     * @return The jsprit.core.problem.Location object of pos.
+     * Follows the best solution found by jsprit. At the end of each iteration in which a better solution than before
+     * was found, the solution is given to a listener, and jsprit is stopped after a number of iterations in a row
+     * without a better solution.
+     * jsprit's own `IterationWithoutImprovementTermination` counts the iterations in which no solution was accepted,
+     * but jsprit accepts worse solutions too, so it hardly ever stops the search.
      */
-    private static Location loc(LongLat pos) {
-        return Location.newInstance(pos.longitude, pos.latitude);
+    private static class BestSolutionListener implements IterationEndsListener, PrematureAlgorithmTermination {
+
+        private final int maxIterationsWithoutImprovement;
+
+        private final Consumer<VehicleRoutingProblemSolution> listener;
+
+        private double bestCost = Double.MAX_VALUE;
+
+        private int iterationsWithoutImprovement = 0;
+
+        BestSolutionListener(int maxIterationsWithoutImprovement, Consumer<VehicleRoutingProblemSolution> listener) {
+            this.maxIterationsWithoutImprovement = maxIterationsWithoutImprovement;
+            this.listener = listener;
+        }
+
+        @Override
+        public void informIterationEnds(int i, VehicleRoutingProblem problem,
+                                        Collection<VehicleRoutingProblemSolution> solutions) {
+            VehicleRoutingProblemSolution best = Solutions.bestOf(solutions);
+            if (best.getCost() < bestCost) {
+                bestCost = best.getCost();
+                iterationsWithoutImprovement = 0;
+                listener.accept(best);
+            } else {
+                iterationsWithoutImprovement++;
+            }
+        }
+
+        @Override
+        public boolean isPrematureBreak(SearchStrategy.DiscoveredSolution discoveredSolution) {
+            return iterationsWithoutImprovement >= maxIterationsWithoutImprovement;
+        }
     }
 }
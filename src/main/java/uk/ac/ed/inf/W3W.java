@@ -1,7 +1,5 @@
 package uk.ac.ed.inf;
 
-import com.google.gson.Gson;
-
 /**
  * This class represent a what three words (w3w) phrase. This class is required by `gson` to parse the what three words
  * object from the JSON file retrieved from the webserver.
@@ -73,14 +71,13 @@ public class W3W {
     public String map;
 
     /**
-     * Converts a what three words phrase into LongLat coordinates.
+     * Converts a what three words phrase into LongLat coordinates. The coordinates are only fetched from the
+     * data source the first time a phrase is converted.
      * @param W3W the what three words phrase
      * @return LongLat object of the what three words phrase
      */
     public static LongLat longLat(String W3W) {
-        var w3wJSON = WebServerClient.instance.get("/words/" + W3W.replace(".", "/") + "/details.json");
-        var words = new Gson().fromJson(w3wJSON, uk.ac.ed.inf.W3W.class);
-        return words.getLongLat();
+        return W3WCache.instance.get(W3W);
     }
 
 
@@ -0,0 +1,154 @@
+package uk.ac.ed.inf;
+
+import com.google.gson.Gson;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * A least recently used cache of the coordinates of what three words phrases. The same delivery addresses come up
+ * on many orders, so each phrase only has to be fetched from `DataSource.instance` once. Phrases can be fetched in
+ * bulk, with all the requests made at the same time, and the cache can be saved to and loaded from a file so that the
+ * data source isn't needed for phrases seen on previous runs.
+ * @author Vivek Raja s1864074
+ */
+public class W3WCache {
+
+    /**
+     * The default maximum number of phrases kept in the cache.
+     */
+    public static final int DEFAULT_CAPACITY = 1024;
+
+    /**
+     * The cache of phrases used by `W3W.longLat`.
+     */
+    public static W3WCache instance = new W3WCache(DEFAULT_CAPACITY);
+
+    /**
+     * The parser of the `details.json` files, shared by all requests.
+     */
+    private static final Gson gson = new Gson();
+
+    /**
+     * The cached coordinates of each phrase, in order of least recently used to most recently used.
+     */
+    private final LinkedHashMap<String, LongLat> locations;
+
+    /**
+     * Instantiates an empty cache.
+     * @param capacity the maximum number of phrases kept in the cache. The least recently used phrase is evicted when
+     *                 a phrase is added to a full cache.
+     */
+    public W3WCache(int capacity) {
+        this.locations = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, LongLat> eldest) {
+                return size() > capacity;
+            }
+        };
+    }
+
+    /**
+     * Returns the coordinates of a what three words phrase, fetching them from `DataSource.instance` if they
+     * aren't cached.
+     * @param words the what three words phrase.
+     * @return The coordinates of the phrase.
+     */
+    public LongLat get(String words) {
+        LongLat location = getCached(words);
+        if (location == null) {
+            location = parse(DataSource.instance.getW3WDetails(words));
+            put(words, location);
+        }
+        return location.copy();
+    }
+
+    /**
+     * Fetches the coordinates of all the phrases that aren't cached yet, with all the requests made at the same time,
+     * and waits for them to be added to the cache.
+     * @param allWords the what three words phrases to fetch. Repeated phrases are only fetched once.
+     */
+    public void prefetch(Collection<String> allWords) {
+        Set<String> missingWords = new LinkedHashSet<>();
+        for (String words : allWords) {
+            if (getCached(words) == null) {
+                missingWords.add(words);
+            }
+        }
+
+        List<CompletableFuture<Void>> requests = new ArrayList<>();
+        for (String words : missingWords) {
+            requests.add(DataSource.instance.getW3WDetailsAsync(words)
+                    .thenAccept(body -> put(words, parse(body))));
+        }
+        try {
+            HttpClient.allOf(requests).join();
+        } catch (RuntimeException e) {
+            // Any phrase that failed will be fetched again (and reported) when it is used.
+            System.err.println("Unable to prefetch all the what three words locations. Error message: "
+                    + e.getMessage() + ".");
+        }
+    }
+
+    /**
+     * Adds the phrases saved in `file` by `save` to the cache. Nothing is loaded if the file doesn't exist.
+     * @param file the file to load the phrases from.
+     */
+    public synchronized void load(Path file) {
+        if (!Files.exists(file)) {
+            return;
+        }
+        try (BufferedReader reader = Files.newBufferedReader(file)) {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                String[] fields = line.split(" ");
+                if (fields.length == 3) {
+                    locations.put(fields[0], new LongLat(Double.parseDouble(fields[1]), Double.parseDouble(fields[2])));
+                }
+            }
+        } catch (IOException | NumberFormatException e) {
+            System.err.println("Unable to load the what three words cache from " + file + ". Error message: "
+                    + e.getMessage() + ".");
+        }
+    }
+
+    /**
+     * Saves the phrases in the cache to `file`, one phrase per line.
+     * @param file the file to save the phrases to.
+     */
+    public synchronized void save(Path file) {
+        try (BufferedWriter writer = Files.newBufferedWriter(file)) {
+            for (Map.Entry<String, LongLat> entry : locations.entrySet()) {
+                LongLat location = entry.getValue();
+                writer.write(entry.getKey() + " " + location.longitude + " " + location.latitude);
+                writer.newLine();
+            }
+        } catch (IOException e) {
+            System.err.println("Unable to save the what three words cache to " + file + ". Error message: "
+                    + e.getMessage() + ".");
+        }
+    }
+
+    private synchronized LongLat getCached(String words) {
+        return locations.get(words);
+    }
+
+    private synchronized void put(String words, LongLat location) {
+        locations.put(words, location);
+    }
+
+    private static LongLat parse(String w3wJSON) {
+        return gson.fromJson(w3wJSON, W3W.class).getLongLat();
+    }
+}
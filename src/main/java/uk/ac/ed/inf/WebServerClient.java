@@ -1,5 +1,9 @@
 package uk.ac.ed.inf;
 
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.stream.Collectors;
+
 /**
  * This class is a wrapper of the HttpClient class to make it easier to make requests to the webserver.
  * Ideally, this class should be used through the instance of this class available in the public `instance` field.
@@ -50,4 +54,29 @@ public class WebServerClient {
         }
         return HttpClient.getRequest(this.serverURL + requestPath);
     }
+
+    /**
+     * Makes a HTTP GET request to the webserver at the specified path without waiting for the response.
+     * @param requestPath The path on the server to make a HTTP GET request to.
+     * @return A future of the body of the response.
+     */
+    public CompletableFuture<String> getAsync(String requestPath) {
+        if (this.serverURL == null) {
+            return CompletableFuture.failedFuture(new IllegalStateException("You have used the instance without " +
+                    "setting the server. Please call `setServer` before trying to make calls to the webserver"));
+        }
+        return HttpClient.getRequestAsync(this.serverURL + requestPath);
+    }
+
+    /**
+     * Makes HTTP GET requests to the webserver at all the specified paths at the same time.
+     * @param requestPaths The paths on the server to make HTTP GET requests to.
+     * @return A future of the bodies of the responses, in the same order as `requestPaths`. The future completes
+     * exceptionally if any of the requests fail.
+     */
+    public CompletableFuture<List<String>> getAllAsync(List<String> requestPaths) {
+        List<CompletableFuture<String>> requests = requestPaths.stream().map(this::getAsync)
+                .collect(Collectors.toList());
+        return HttpClient.allOf(requests);
+    }
 }